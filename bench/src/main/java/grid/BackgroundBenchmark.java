@@ -0,0 +1,45 @@
+package grid;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks rendering the Background into an offscreen image.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class BackgroundBenchmark {
+
+    @Param({"4", "8", "16"})
+    public int tileSize;
+
+    private Background background;
+    private Camera camera;
+    private BufferedImage image;
+    private Graphics2D g2D;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        background = new Background();
+        camera = new Camera(800, 600, tileSize, -50, 40, 3, 5);
+        image = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+        g2D = image.createGraphics();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        g2D.dispose();
+    }
+
+    @Benchmark
+    public void render() {
+        background.render(g2D, camera);
+    }
+}
@@ -0,0 +1,83 @@
+package grid;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks converting grid coordinates to screen coordinates, point by
+ * point through the Camera, and in bulk through a Camera.View and its
+ * grid transform.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class CameraBenchmark {
+
+    @Param({"4", "16"})
+    public int tileSize;
+
+    @Param({"10000"})
+    public int points;
+
+    private Camera camera;
+    private int[] gridX, gridY;
+    private int[] screenX, screenY;
+
+    // the points as x, y pairs, for the grid transform
+    private float[] gridPoints, screenPoints;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        camera = new Camera(800, 600, tileSize, -50, 40, 3, 5);
+        Random random = new Random(42);
+        gridX = new int[points];
+        gridY = new int[points];
+        for (int i = 0; i < points; i++) {
+            gridX[i] = random.nextInt(200) - 100;
+            gridY[i] = random.nextInt(200) - 100;
+        }
+        screenX = new int[points];
+        screenY = new int[points];
+        gridPoints = new float[2 * points];
+        for (int i = 0; i < points; i++) {
+            gridPoints[2 * i] = gridX[i];
+            gridPoints[2 * i + 1] = gridY[i];
+        }
+        screenPoints = new float[2 * points];
+    }
+
+    @Benchmark
+    public int gridToScreen() {
+        int sum = 0;
+        for (int i = 0; i < points; i++)
+            sum += camera.gridToScreenX(gridX[i]) ^ camera.gridToScreenY(gridY[i]);
+        return sum;
+    }
+
+    // bulk conversion through the view, as used by the renderers
+    @Benchmark
+    public int viewToScreen() {
+        camera.view().toScreen(gridX, gridY, screenX, screenY, points);
+        return screenX[points - 1] ^ screenY[points - 1];
+    }
+
+    // bulk conversion through the grid transform, as used for shapes in grid units
+    @Benchmark
+    public float gridTransform() {
+        camera.view().gridTransform().transform(gridPoints, 0, screenPoints, 0, points);
+        return screenPoints[2 * points - 1];
+    }
+
+    @Benchmark
+    public int screenToGrid() {
+        int sum = 0;
+        for (int i = 0; i < points; i++)
+            sum += camera.screenToGridX(gridX[i] & 511) ^ camera.screenToGridY(gridY[i] & 511);
+        return sum;
+    }
+}
@@ -0,0 +1,75 @@
+package kcf;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the phases of a synchronous round of Simulation
+ * over swarms of different sizes and densities.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class SimulationBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int robots;
+
+    // robots per grid point
+    @Param({"0.05", "0.5"})
+    public double density;
+
+    private Simulation simulation;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        simulation = Swarms.simulation(robots, density, 42);
+        // activate the robots of the first round
+        simulation.start();
+        simulation.advance();
+        simulation.look();
+    }
+
+    @Benchmark
+    public void look() {
+        simulation.look();
+    }
+
+    @Benchmark
+    public boolean compute() {
+        return simulation.compute();
+    }
+
+    @Benchmark
+    public boolean collision() {
+        return simulation.collision();
+    }
+
+    // a single step of the move phase, paths are recomputed before every step
+    @Benchmark
+    public void move(MoveState m) {
+        m.simulation.move();
+    }
+
+    @State(Scope.Thread)
+    public static class MoveState {
+        Simulation simulation;
+
+        @Setup(Level.Trial)
+        public void setup(SimulationBenchmark b) {
+            simulation = Swarms.simulation(b.robots, b.density, 42);
+            simulation.start();
+            simulation.advance();
+            simulation.look();
+        }
+
+        @Setup(Level.Invocation)
+        public void computePaths() {
+            simulation.compute();
+        }
+    }
+}
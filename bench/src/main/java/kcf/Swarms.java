@@ -0,0 +1,69 @@
+package kcf;
+
+import java.awt.*;
+import java.util.Random;
+
+/**
+ * class Swarms creates reproducible simulations for benchmarks.
+ */
+final class Swarms {
+
+    private Swarms() {}
+
+    // returns the side of the square grid that holds 'robots' robots at the given density
+    static int side(int robots, double density) {
+        return (int) Math.ceil(Math.sqrt(robots / density));
+    }
+
+    /**
+     * Places robots on distinct random points of a square grid.
+     * @param robots number of robots
+     * @param density robots per grid point of the square
+     * @param seed seed of the placement
+     * @return robots with random x-axis alignment
+     */
+    static RobotInterface[] robots(int robots, double density, long seed, RobotFactory factory) {
+        Random random = new Random(seed);
+        int side = side(robots, density);
+        int[] cells = new int[side * side];
+        for (int i = 0; i < cells.length; i++)
+            cells[i] = i;
+        RobotInterface[] robotInterfaces = new RobotInterface[robots];
+        for (int i = 0; i < robots; i++) {
+            // partial Fisher-Yates shuffle, cells[0..i] are distinct
+            int j = i + random.nextInt(cells.length - i);
+            int c = cells[j];
+            cells[j] = cells[i];
+            cells[i] = c;
+            boolean aligned = random.nextBoolean();
+            Point p = new Point(c % side - side / 2, c / side - side / 2);
+            // robots are created in their local coordinate system
+            if (!aligned) p.x = -p.x;
+            robotInterfaces[i] = new RobotInterface(factory.create(p), aligned);
+        }
+        return robotInterfaces;
+    }
+
+    static Point[] fixedPoints(int count, int side, long seed) {
+        Random random = new Random(seed);
+        Point[] fixedPoints = new Point[count];
+        for (int i = 0; i < count; i++)
+            fixedPoints[i] = new Point(random.nextInt(side) - side / 2, random.nextInt(side) - side / 2);
+        return fixedPoints;
+    }
+
+    static Simulation simulation(int robots, double density, long seed) {
+        Simulation s = new Simulation(
+                robots(robots, density, seed, RandomRobot::new),
+                fixedPoints(10, side(robots, density), seed),
+                0, false
+        );
+        s.setVerbose(false);
+        s.setSeed(seed);
+        return s;
+    }
+
+    interface RobotFactory {
+        Robot create(Point position);
+    }
+}
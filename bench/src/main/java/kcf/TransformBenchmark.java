@@ -0,0 +1,95 @@
+package kcf;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.*;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the conversion of the look snapshot to the local
+ * coordinate system of a robot in RobotInterface.LCM.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TransformBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int robots;
+
+    @Param({"true", "false"})
+    public boolean aligned;
+
+    private RobotInterface robotInterface;
+    private Point[] pointR, pointF;
+    private PointView viewR, viewF;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        robotInterface = new RobotInterface(new ScanRobot(), aligned);
+        RobotInterface[] swarm = Swarms.robots(robots, 0.1, 42, ScanRobot::new);
+        Point[] fixedPoints = Swarms.fixedPoints(10, Swarms.side(robots, 0.1), 42);
+
+        int[] xs = new int[robots], ys = new int[robots];
+        pointR = new Point[robots];
+        for (int i = 0; i < robots; i++) {
+            pointR[i] = swarm[i].getPosition();
+            xs[i] = pointR[i].x;
+            ys[i] = pointR[i].y;
+        }
+        int[] fxs = new int[fixedPoints.length], fys = new int[fixedPoints.length];
+        for (int i = 0; i < fixedPoints.length; i++) {
+            fxs[i] = fixedPoints[i].x;
+            fys[i] = fixedPoints[i].y;
+        }
+        pointF = fixedPoints;
+        viewR = PointView.of(xs, ys, robots);
+        viewF = PointView.of(fxs, fys, fixedPoints.length);
+    }
+
+    @Benchmark
+    public void pointArrays(Blackhole bh) {
+        bh.consume(robotInterface.LCM(pointR, pointF));
+    }
+
+    @Benchmark
+    public void pointViews(Blackhole bh) {
+        bh.consume(robotInterface.LCM(viewR, viewF));
+    }
+
+    // robot that reads every point it is given and does not move
+    static class ScanRobot extends Robot {
+        int checksum;
+
+        ScanRobot() {
+            this(new Point());
+        }
+
+        ScanRobot(Point position) {
+            super(position);
+        }
+
+        @Override
+        public Queue<Direction> LCM(Point[] R, Point[] F) {
+            int sum = 0;
+            for (Point p : R) sum += p.x ^ p.y;
+            for (Point p : F) sum += p.x ^ p.y;
+            checksum = sum;
+            return new Path();
+        }
+
+        @Override
+        public Path LCM(PointView R, PointView F) {
+            int sum = 0;
+            for (int i = 0; i < R.size(); i++) sum += R.x(i) ^ R.y(i);
+            for (int i = 0; i < F.size(); i++) sum += F.x(i) ^ F.y(i);
+            checksum = sum;
+            return new Path();
+        }
+    }
+}
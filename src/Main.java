@@ -1,20 +1,29 @@
 import javax.swing.*;
 
 import grid.Background;
+import grid.Layer;
 import grid.Scene;
 import kcf.RandomRobot;
 import kcf.RobotInterface;
 import kcf.Simulation;
+import util.Metrics;
+import util.MetricsReporter;
+import util.RandomStream;
 import util.RandomUtil;
 
 import java.awt.*;
+import java.io.OutputStreamWriter;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(Main::createAndShowGUI);
+        // the seed of the run can be given to reproduce it
+        long seed = (args.length > 0) ? Long.parseLong(args[0]) : System.nanoTime();
+        System.out.println("Seed: " + seed);
+        SwingUtilities.invokeLater(() -> createAndShowGUI(seed));
     }
 
-    private static void createAndShowGUI() {
+    private static void createAndShowGUI(long seed) {
         JFrame window = new JFrame("Main Frame");
 
         window.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -28,32 +37,50 @@ public class Main {
                 canvasWidth, canvasHeight,
                 tileSize,
                 - canvasWidth / (2 * tileSize) + 2,  canvasHeight / (2 * tileSize) - 2,
-                2 * tileSize, 2 * tileSize
+                2 * tileSize, 2 * tileSize,
+                Scene.RenderMode.ACTIVE
         );
 
-        scene.addEntity(new Background());
+        // the background only changes with the camera, it is rendered into a cached layer
+        Layer background = new Layer(Layer.Kind.STATIC);
+        background.addEntity(new Background());
+        scene.addLayer(background);
 
         window.add(scene);
         window.pack();
         window.setLocationRelativeTo(null);
         window.setVisible(true);
 
+        // robots, fixed points and the simulation get independent streams of the seed
+        RandomStream random = new RandomStream(seed);
+        RandomStream robotRandom = random.derive(0), fixedRandom = random.derive(1);
+
+        // robots and fixed points are placed in [-19, 19], centered on the origin
         RobotInterface[] robotInterfaces = new RobotInterface[20];
         for (int i = 0; i < robotInterfaces.length; i++)
             robotInterfaces[i] = new RobotInterface(
-                    new RandomRobot(RandomUtil.uniformPoint(-20, 20)),
-                    Math.random() < 0.5
+                    new RandomRobot(RandomUtil.uniformPoint(robotRandom, -19, 20)),
+                    robotRandom.nextDouble() < 0.5
             );
 
         // creating fixed points
         Point[] fixedPoints = new Point[10];
         for (int i = 0; i < fixedPoints.length; i++)
-            fixedPoints[i] = RandomUtil.uniformPoint(-20, 20);
+            fixedPoints[i] = RandomUtil.uniformPoint(fixedRandom, -19, 20);
 
         // creating the simulation
         Simulation s = new Simulation(robotInterfaces, fixedPoints, 60, false);
+        s.setSeed(random.derive(2).nextLong());
         scene.addEntity(s);
 
+        // phase and frame timings are reported every 10 seconds, -Dgridsystem.jfr=true
+        // also commits them as Flight Recorder events
+        Metrics metrics = new Metrics();
+        metrics.setJfrEnabled(Boolean.getBoolean("gridsystem.jfr"));
+        s.setMetrics(metrics);
+        scene.setMetrics(metrics);
+        new MetricsReporter(metrics, new OutputStreamWriter(System.out), MetricsReporter.Format.TEXT, 10, TimeUnit.SECONDS);
+
         scene.drawLoop.start();
 
         scene.eventQueue.enqueue(s::start);
@@ -1,15 +1,30 @@
 package grid;
 
 import java.awt.*;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Background of grid.Scene
  */
 public class Background implements Entity {
+    // maximum number of axis labels kept in the cache
+    private static final int MAX_LABELS = 4096;
+
     public final Color oddTiles;
     public final Color evenTiles;
     public final Color axisBorders;
 
+    // checkerboard covering the canvas plus 2 tiles in each direction,
+    // rebuilt only when the tile size or the canvas size changes
+    private BufferedImage checkerboard;
+    private int checkerboardTileSize = -1;
+
+    // images of axis labels keyed by (tile size, value)
+    private final Map<Long, BufferedImage> labels = new HashMap<>();
+
     public Background() {
         this(Color.WHITE, new Color(245, 245, 245), Color.BLUE);
     }
@@ -27,38 +42,89 @@ public class Background implements Entity {
 
     @Override
     public void render(Graphics2D g2D, Camera c) {
-        for (int tileY = 0; tileY < c.tileCountY(); tileY++) {
-            for (int tileX = 0; tileX < c.tileCountX(); tileX++) {
-                boolean even = (c.tileToGridX(tileX) + c.tileToGridY(tileY)) % 2 == 0;
-                g2D.setColor(even ? evenTiles : oddTiles);
-                g2D.fillRect(c.tileToScreenX(tileX), c.tileToScreenY(tileY), c.tileSize(), c.tileSize());
-            }
-        }
+        Camera.View v = c.view();
+        int tileSize = v.tileSize;
 
-        g2D.setColor(axisBorders);
-        // y-axis
-        if (c.isVisibleX(0)) {
-            for (int tileY = 0; tileY < c.tileCountY(); tileY++) {
-                g2D.drawRect(c.gridToScreenX(0), c.tileToScreenY(tileY), c.tileSize(), c.tileSize());
-                util.GraphicsUtil.drawCenteredString(
-                        g2D,
-                        c.tileToGridY(tileY) + "",
-                        new Rectangle(c.gridToScreenX(0), c.tileToScreenY(tileY), c.tileSize(), c.tileSize()),
-                        new Font(Font.SERIF, Font.PLAIN, c.tileSize() / 2)
-                );
+        // the checkerboard repeats every 2 tiles, anchor it on a tile with an even grid point
+        int period = 2 * tileSize;
+        int anchorX = Math.floorMod(v.originX, period) - period;
+        int anchorY = Math.floorMod(v.originY, period) - period;
+        g2D.drawImage(checkerboard(v), anchorX, anchorY, null);
+
+        // borders of the axis tiles in grid units, transformed to the screen
+        // at once, so the stroke stays one pixel wide and they take one draw call
+        Path2D.Float borders = new Path2D.Float();
+        Rectangle tile = new Rectangle(0, 0, 1, 1);
+        if (v.isVisibleX(0)) {
+            for (int y = v.maxY; y >= v.minY; y--) {
+                tile.setLocation(0, y);
+                borders.append(tile, false);
             }
         }
-        // x-axis
-        if (c.isVisibleY(0)) {
-            for (int tileX = 0; tileX < c.tileCountX(); tileX++) {
-                g2D.drawRect(c.tileToScreenX(tileX), c.gridToScreenY(0), c.tileSize(), c.tileSize());
-                util.GraphicsUtil.drawCenteredString(
-                        g2D,
-                        c.tileToGridX(tileX) + "",
-                        new Rectangle(c.tileToScreenX(tileX), c.gridToScreenY(0), c.tileSize(), c.tileSize()),
-                        new Font(Font.SERIF, Font.PLAIN, c.tileSize() / 2)
-                );
+        if (v.isVisibleY(0)) {
+            for (int x = v.minX; x <= v.maxX; x++) {
+                tile.setLocation(x, 0);
+                borders.append(tile, false);
             }
         }
+        g2D.setColor(axisBorders);
+        g2D.draw(v.gridTransform().createTransformedShape(borders));
+
+        // y-axis labels
+        if (v.isVisibleX(0)) {
+            for (int y = v.maxY; y >= v.minY; y--)
+                g2D.drawImage(label(y, tileSize), v.originX, v.screenY(y), null);
+        }
+        // x-axis labels
+        if (v.isVisibleY(0)) {
+            for (int x = v.minX; x <= v.maxX; x++)
+                g2D.drawImage(label(x, tileSize), v.screenX(x), v.originY, null);
+        }
+    }
+
+    // returns the checkerboard for the view, its top-left tile is even
+    private BufferedImage checkerboard(Camera.View v) {
+        int tileSize = v.tileSize, period = 2 * tileSize;
+        int width = v.canvasWidth + period, height = v.canvasHeight + period;
+        if (checkerboardTileSize != tileSize || checkerboard.getWidth() != width || checkerboard.getHeight() != height) {
+            // 2x2 tiles with even tiles on the diagonal
+            BufferedImage tile = new BufferedImage(period, period, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = tile.createGraphics();
+            g.setColor(evenTiles);
+            g.fillRect(0, 0, period, period);
+            g.setColor(oddTiles);
+            g.fillRect(tileSize, 0, tileSize, tileSize);
+            g.fillRect(0, tileSize, tileSize, tileSize);
+            g.dispose();
+
+            checkerboard = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            g = checkerboard.createGraphics();
+            g.setPaint(new TexturePaint(tile, new Rectangle(0, 0, period, period)));
+            g.fillRect(0, 0, width, height);
+            g.dispose();
+            checkerboardTileSize = tileSize;
+        }
+        return checkerboard;
+    }
+
+    // returns a transparent tile sized image with value centered in it
+    private BufferedImage label(int value, int tileSize) {
+        long key = ((long) tileSize << 32) | (value & 0xFFFFFFFFL);
+        BufferedImage label = labels.get(key);
+        if (label == null) {
+            if (labels.size() >= MAX_LABELS) labels.clear();
+            label = new BufferedImage(tileSize, tileSize, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = label.createGraphics();
+            g.setColor(axisBorders);
+            util.GraphicsUtil.drawCenteredString(
+                    g,
+                    value + "",
+                    new Rectangle(0, 0, tileSize, tileSize),
+                    new Font(Font.SERIF, Font.PLAIN, tileSize / 2)
+            );
+            g.dispose();
+            labels.put(key, label);
+        }
+        return label;
     }
-}
\ No newline at end of file
+}
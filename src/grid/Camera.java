@@ -1,5 +1,7 @@
 package grid;
 
+import java.awt.geom.AffineTransform;
+
 /**
  * class Camera represents the visible part of the grid.
  * Each point on the grid is displayed as a tile on the canvas.
@@ -17,8 +19,9 @@ package grid;
  *      * Positive direction of y-axis: downwards
  */
 public class Camera {
-    // minimum size of a tile in pixels
-    public static final int MIN_TILE_SIZE = 4;
+    // minimum size of a tile in pixels, below RasterLayer.HEATMAP_TILE_SIZE
+    // robots are drawn as a density map
+    public static final int MIN_TILE_SIZE = 1;
 
     // size of the display canvas in pixels
     public final int canvasWidth;
@@ -37,6 +40,11 @@ public class Camera {
     private double offsetX = 0;
     private double offsetY = 0;
 
+    // incremented whenever the visible part of the grid changes
+    private int version = 0;
+
+    // view of the current version, created on first use
+    private volatile View view;
 
     /**
      * @param canvasWidth width of the canvas in pixels
@@ -64,6 +72,20 @@ public class Camera {
 
     public int tileSize() { return tileSize; }
 
+    /**
+     * Returns the current view of the camera. The same instance is returned
+     * until the camera is moved or zoomed, so renderers can fetch it once
+     * per frame and compare views by identity.
+     */
+    public View view() {
+        View v = view;
+        if (v == null || v.version != version) {
+            v = new View(this);
+            view = v;
+        }
+        return v;
+    }
+
     public int topLeftX() { return topLeftX; }
 
     public int topLeftY() { return topLeftY; }
@@ -129,6 +151,7 @@ public class Camera {
         this.offsetX += offsetX;
         this.offsetY += offsetY;
         normalizeOffset();
+        version++;
     }
 
     // adds offset in pixels (can be used to pan the camera)
@@ -141,6 +164,7 @@ public class Camera {
     public void setTileSize(int pixels) {
         pixels = Math.max(MIN_TILE_SIZE, pixels);
         tileSize = pixels;
+        version++;
     }
 
 
@@ -205,4 +229,74 @@ public class Camera {
     public int screenToGridY(int screenY) {
         return tileToGridY(screenToTileY(screenY));
     }
+
+
+    /**
+     * class View represents an immutable view of a Camera, with the
+     * conversion from grid to screen coordinates reduced to one integer
+     * multiply-add per axis:
+     *  * screenX = originX + gridX * tileSize
+     *  * screenY = originY - gridY * tileSize
+     * The visible grid points are [minX, maxX] x [minY, maxY].
+     */
+    public static final class View {
+        public final int version;
+        public final int canvasWidth, canvasHeight;
+        public final int tileSize;
+
+        // screen coordinate of the top-left corner of the tile of grid point (0, 0)
+        public final int originX, originY;
+
+        // bounds of the visible grid points, inclusive
+        public final int minX, maxX, minY, maxY;
+
+        private View(Camera c) {
+            version = c.version;
+            canvasWidth = c.canvasWidth;
+            canvasHeight = c.canvasHeight;
+            tileSize = c.tileSize;
+            originX = c.offsetX() - c.topLeftX * tileSize;
+            originY = c.offsetY() + c.topLeftY * tileSize;
+            minX = c.topLeftX;
+            maxX = c.topLeftX + c.tileCountX() - 1;
+            maxY = c.topLeftY;
+            minY = c.topLeftY - c.tileCountY() + 1;
+        }
+
+        public int screenX(int gridX) { return originX + gridX * tileSize; }
+
+        public int screenY(int gridY) { return originY - gridY * tileSize; }
+
+        public boolean isVisibleX(int gridX) { return gridX >= minX && gridX <= maxX; }
+
+        public boolean isVisibleY(int gridY) { return gridY >= minY && gridY <= maxY; }
+
+        public boolean isVisible(int gridX, int gridY) { return isVisibleX(gridX) && isVisibleY(gridY); }
+
+        /**
+         * Converts n grid points to the screen coordinates of their tiles.
+         * @param gridX grid x coordinates
+         * @param gridY grid y coordinates
+         * @param screenX receives the screen x coordinates, may be gridX
+         * @param screenY receives the screen y coordinates, may be gridY
+         * @param n number of points
+         */
+        public void toScreen(int[] gridX, int[] gridY, int[] screenX, int[] screenY, int n) {
+            int size = tileSize, ox = originX, oy = originY;
+            for (int i = 0; i < n; i++) {
+                screenX[i] = ox + gridX[i] * size;
+                screenY[i] = oy - gridY[i] * size;
+            }
+        }
+
+        /**
+         * Returns a transform from grid units to screen pixels, so shapes can
+         * be drawn in grid units. The tile of grid point (x, y) is the unit
+         * square from (x, y) to (x + 1, y + 1). Strokes and fonts are scaled
+         * and flipped along with the shapes.
+         */
+        public AffineTransform gridTransform() {
+            return new AffineTransform(tileSize, 0, 0, -tileSize, originX, originY + tileSize);
+        }
+    }
 }
@@ -0,0 +1,22 @@
+package grid;
+
+import java.awt.*;
+import java.util.List;
+
+/**
+ * interface DirtyRegions is implemented by entities of dynamic layers
+ * that can tell which parts of the canvas their next render changes.
+ * A Scene then only composites those parts of the frame again. Entities
+ * of dynamic layers that don't implement it are redrawn in full.
+ */
+public interface DirtyRegions {
+    /**
+     * Called right before render() on frames the Camera did not change.
+     * The entity must still render correctly if the Scene decides to
+     * redraw the whole frame after all.
+     * @param c camera of the frame
+     * @param dirty receives the canvas regions the next render changes
+     * @return false if the regions are unknown and the whole frame must be redrawn
+     */
+    boolean dirtyRegions(Camera c, List<Rectangle> dirty);
+}
@@ -1,12 +1,31 @@
 package grid;
 
+import util.Histogram;
+import util.Metrics;
+
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * abstract class DrawLoop represents an abstraction of a
  * "game loop". Which is a update-render-wait loop.
+ * Updates run on a fixed timestep of their own clock, independent
+ * of how long rendering takes. When the loop falls behind, render
+ * frames are dropped so the updates can catch up, but a due render
+ * still runs after MAX_CATCH_UP updates in a row, so updates that take
+ * longer than their timestep can't starve rendering.
  */
 public abstract class DrawLoop {
+    // if updates fall further behind than this they stop catching up
+    private static final long MAX_LAG = TimeUnit.MILLISECONDS.toNanos(250);
+
+    // updates run in a row at most before a due render runs
+    private static final int MAX_CATCH_UP = 5;
+
+    // waits shorter than this are spun instead of parked
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+
     // status of the loop
     private final AtomicBoolean running;
 
@@ -16,10 +35,36 @@ public abstract class DrawLoop {
     // thread on which the loop runs
     private Thread loopThread;
 
+    // nanoseconds between two updates and between two renders
+    private volatile long updateNanos;
+    private volatile long renderNanos;
+
+    // number of frames rendered and dropped
+    private volatile long renderedFrames = 0;
+    private volatile long droppedFrames = 0;
+
+    // duration of the last render and its exponential moving average in nanoseconds
+    private volatile long lastFrameNanos = 0;
+    private volatile double averageFrameNanos = 0;
+
+    // update and render durations and the deviation of the time between two
+    // renders from the render rate, all null if metrics are disabled
+    private volatile Histogram updateTime, frameTime, jitter;
+
     public DrawLoop() {
+        this(60, 60);
+    }
+
+    /**
+     * @param updateRate number of updates per second
+     * @param renderRate number of renders per second
+     */
+    public DrawLoop(double updateRate, double renderRate) {
         loopThread = null;
         running = new AtomicBoolean(false);
         paused = new AtomicBoolean(false);
+        setUpdateRate(updateRate);
+        setRenderRate(renderRate);
     }
 
     public synchronized void start() {
@@ -29,8 +74,8 @@ public abstract class DrawLoop {
 
         loopThread = new Thread(this::loop);
 
-        loopThread.start();
         running.set(true);
+        loopThread.start();
     }
 
     public synchronized void pause() {
@@ -41,27 +86,107 @@ public abstract class DrawLoop {
         paused.set(false);
     }
 
+    // sets the number of updates per second, can be changed while running
+    public void setUpdateRate(double updateRate) {
+        updateNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / updateRate));
+    }
+
+    // sets the number of renders per second, can be changed while running
+    public void setRenderRate(double renderRate) {
+        renderNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / renderRate));
+    }
+
+    public long renderedFrames() { return renderedFrames; }
+
+    public long droppedFrames() { return droppedFrames; }
+
+    public long lastFrameNanos() { return lastFrameNanos; }
+
+    // average render duration, recent frames weigh the most
+    public double averageFrameNanos() { return averageFrameNanos; }
+
+    /**
+     * Records update and frame times and frame jitter into the given
+     * registry, can be changed while running.
+     * @param metrics registry to record into, null to disable metrics
+     */
+    public void setMetrics(Metrics metrics) {
+        if (metrics == null) {
+            frameTime = null;
+            return;
+        }
+        metrics.gauge("drawLoop.renderedFrames", this::renderedFrames);
+        metrics.gauge("drawLoop.droppedFrames", this::droppedFrames);
+        updateTime = metrics.histogram("drawLoop.update.ns");
+        jitter = metrics.histogram("drawLoop.jitter.ns");
+        // written last, the loop only reads the others if it is set
+        frameTime = metrics.histogram("drawLoop.frame.ns");
+    }
+
     private void loop() {
+        long nextUpdate = System.nanoTime();
+        long nextRender = nextUpdate;
+        // start of the previous render, 0 if there is none to measure jitter against
+        long lastRender = 0;
+        // updates run since the last render
+        int catchUp = 0;
         while (running.get()) {
-            if (!paused.get()) {
+            if (paused.get()) {
+                // if paused go to sleep instead of busy waiting
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+                nextUpdate = nextRender = System.nanoTime();
+                lastRender = 0;
+                catchUp = 0;
+                continue;
+            }
+
+            long now = System.nanoTime();
+            Histogram frames = frameTime;
+            boolean renderDue = now - nextRender >= 0;
+            if (now - nextUpdate >= 0 && !(renderDue && catchUp >= MAX_CATCH_UP)) {
+                // updates have priority over renders until they ran MAX_CATCH_UP times in a row
                 update();
+                catchUp++;
+                if (frames != null) updateTime.record(System.nanoTime() - now);
+                nextUpdate += updateNanos;
+                if (now - nextUpdate > MAX_LAG)
+                    nextUpdate = now;
+            } else if (renderDue) {
                 render();
-                try {
-                    Thread.sleep(16);
-                } catch (InterruptedException e) {
-                    // do nothing.
+                catchUp = 0;
+                long frame = System.nanoTime() - now;
+                lastFrameNanos = frame;
+                averageFrameNanos = (renderedFrames == 0) ? frame : averageFrameNanos + (frame - averageFrameNanos) / 16;
+                if (frames != null) {
+                    frames.record(frame);
+                    if (lastRender != 0) jitter.record(Math.abs(now - lastRender - renderNanos));
                 }
-            } else {
-                // if paused go to sleep instead of busy waiting
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException e) {
-                    // do nothing
+                lastRender = now;
+                renderedFrames++;
+                nextRender += renderNanos;
+                if (now - nextRender >= 0) {
+                    // frames missed while updates were catching up
+                    long missed = (now - nextRender) / renderNanos + 1;
+                    droppedFrames += missed;
+                    nextRender += missed * renderNanos;
                 }
+            } else {
+                waitUntil(Math.min(nextUpdate - now, nextRender - now) + now);
             }
         }
     }
 
+    // parks until shortly before deadline and spins for the rest
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > SPIN_NANOS)
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+            else
+                Thread.yield();
+        }
+    }
+
     protected abstract void update();
     protected abstract void render();
 }
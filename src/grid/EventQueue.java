@@ -1,25 +1,83 @@
 package grid;
 
-import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Consumer;
 
 /**
  * class EventQueue represents a thread-safe
- * queue of events
+ * queue of events. Any number of threads can
+ * enqueue events without locking, events must
+ * be dequeued by a single thread (the draw loop).
  */
 public class EventQueue {
-    private final LinkedList<Event> queue = new LinkedList<>();
+    private static final class Node {
+        private static final AtomicReferenceFieldUpdater<Node, Node> NEXT =
+                AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "next");
+
+        private volatile Node next;
+        private Event event;
+
+        Node(Event event) {
+            this.event = event;
+        }
+    }
+
+    // last node, producers swap themselves in here
+    private final AtomicReference<Node> tail;
+
+    // node before the first event, only used by the consumer
+    private Node head;
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    public EventQueue() {
+        head = new Node(null);
+        tail = new AtomicReference<>(head);
+    }
 
     // enqueue an event
-    public synchronized void enqueue(Event e) {
-        queue.addLast(e);
+    public void enqueue(Event e) {
+        Node node = new Node(e);
+        size.incrementAndGet();
+        Node prev = tail.getAndSet(node);
+        Node.NEXT.lazySet(prev, node);
+    }
+
+    // dequeue an event, returns null if the queue is empty
+    public Event dequeue() {
+        Node next = head.next;
+        if (next == null)
+            return null;
+        Event e = next.event;
+        next.event = null;
+        head = next;
+        size.decrementAndGet();
+        return e;
+    }
+
+    public int size() {
+        return size.get();
     }
 
-    // dequeue an event
-    public synchronized Event dequeue() {
-        return queue.removeFirst();
+    /**
+     * Dequeues the events present when the call is made and passes them to
+     * consumer in order. Events enqueued while draining are left for the next call.
+     * @return number of events drained
+     */
+    public int drainTo(Consumer<? super Event> consumer) {
+        return drainTo(consumer, size());
     }
 
-    public synchronized int size() {
-        return queue.size();
+    // dequeues at most max events and passes them to consumer in order
+    public int drainTo(Consumer<? super Event> consumer, int max) {
+        int drained = 0;
+        Event e;
+        while (drained < max && (e = dequeue()) != null) {
+            consumer.accept(e);
+            drained++;
+        }
+        return drained;
     }
 }
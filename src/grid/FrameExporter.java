@@ -0,0 +1,276 @@
+package grid;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * abstract class FrameExporter encodes the frames of an OffscreenRenderer
+ * on background threads, so a frame is encoded while the next one is
+ * rendered. PNG sequences encode frames in parallel, an animated GIF
+ * encodes them one after another in order. The first encoding error is
+ * thrown by the next submit() or by close().
+ */
+public abstract class FrameExporter implements Closeable {
+    private final ExecutorService encoders;
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+    private final AtomicInteger encoded = new AtomicInteger();
+
+    protected FrameExporter(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "frame-encoder-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        encoders = Executors.newFixedThreadPool(Math.max(1, threads), factory);
+    }
+
+    /**
+     * Writes every frame to its own PNG file in directory, named
+     * prefix + six digit frame index + ".png".
+     * @param threads number of frames encoded at once
+     */
+    public static FrameExporter png(File directory, String prefix, int threads) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("can't create directory " + directory);
+        return new PngExporter(directory, prefix, threads);
+    }
+
+    /**
+     * Writes the frames to an animated GIF that loops forever. Frames are
+     * reduced to a fixed palette of a 6x6x6 color cube and 40 grays.
+     * @param delayMillis time each frame is shown
+     */
+    public static FrameExporter gif(File file, int delayMillis) throws IOException {
+        return new GifExporter(file, delayMillis);
+    }
+
+    // number of frames encoded so far
+    public int encoded() { return encoded.get(); }
+
+    /**
+     * Encodes a frame on an encoder thread.
+     * @param index index of the frame
+     * @param frame frame to encode, it must not be changed until release is run
+     * @param release run once the frame is encoded or failed
+     */
+    void submit(int index, BufferedImage frame, Runnable release) throws IOException {
+        rethrow();
+        encoders.execute(() -> {
+            try {
+                if (failure.get() == null) {
+                    encode(index, frame);
+                    encoded.incrementAndGet();
+                }
+            } catch (IOException | RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                release.run();
+            }
+        });
+    }
+
+    // encodes a frame, called on an encoder thread
+    protected abstract void encode(int index, BufferedImage frame) throws IOException;
+
+    // called after the last frame is encoded
+    protected void finish() throws IOException {}
+
+    // waits until all submitted frames are encoded and finishes the output
+    @Override
+    public void close() throws IOException {
+        encoders.shutdown();
+        try {
+            while (!encoders.awaitTermination(1, TimeUnit.SECONDS)) { }
+        } catch (InterruptedException e) {
+            encoders.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while encoding frames", e);
+        }
+        IOException failed = null;
+        try {
+            rethrow();
+        } catch (IOException e) {
+            failed = e;
+        }
+        // the output is finished even after a failure, so its file is closed,
+        // but the first failure is what gets reported
+        try {
+            finish();
+        } catch (IOException | RuntimeException e) {
+            if (failed == null) throw e;
+            failed.addSuppressed(e);
+        }
+        if (failed != null) throw failed;
+    }
+
+    private void rethrow() throws IOException {
+        Exception e = failure.get();
+        if (e instanceof IOException) throw new IOException(e.getMessage(), e);
+        if (e != null) throw new IOException("encoding a frame failed", e);
+    }
+
+    // image streams don't truncate files, so an old file is deleted first
+    private static ImageOutputStream create(File file) throws IOException {
+        if (file.exists() && !file.delete()) throw new IOException("can't replace " + file);
+        ImageOutputStream out = ImageIO.createImageOutputStream(file);
+        if (out == null) throw new IOException("can't write " + file);
+        return out;
+    }
+
+    private static class PngExporter extends FrameExporter {
+        // quality 0.75 is a fast deflate level, it also compresses frames
+        // of flat colors better than the default
+        private static final float COMPRESSION_QUALITY = 0.75f;
+
+        private final File directory;
+        private final String prefix;
+
+        PngExporter(File directory, String prefix, int threads) {
+            super(threads);
+            this.directory = directory;
+            this.prefix = prefix;
+        }
+
+        @Override
+        protected void encode(int index, BufferedImage frame) throws IOException {
+            File file = new File(directory, String.format("%s%06d.png", prefix, index));
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+            try (ImageOutputStream out = create(file)) {
+                writer.setOutput(out);
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                // PNG writers of other image I/O plugins may have no compression settings
+                if (param.canWriteCompressed()) {
+                    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    param.setCompressionQuality(COMPRESSION_QUALITY);
+                }
+                writer.write(null, new IIOImage(frame, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+        }
+    }
+
+    private static class GifExporter extends FrameExporter {
+        private static final IndexColorModel PALETTE = palette();
+
+        // palette index of every color with 5 bits per channel
+        private static final byte[] INDEX = new byte[1 << 15];
+        static {
+            for (int c = 0; c < INDEX.length; c++)
+                INDEX[c] = (byte) nearest(expand(c >> 10), expand((c >> 5) & 31), expand(c & 31));
+        }
+
+        private final ImageOutputStream out;
+        private final ImageWriter writer;
+        private final int delay;
+
+        // frame converted to the palette, only used by the single encoder thread
+        private BufferedImage indexed;
+        private boolean first = true;
+
+        GifExporter(File file, int delayMillis) throws IOException {
+            super(1);
+            writer = ImageIO.getImageWritersByFormatName("gif").next();
+            out = create(file);
+            writer.setOutput(out);
+            writer.prepareWriteSequence(null);
+            delay = Math.max(1, delayMillis / 10);
+        }
+
+        @Override
+        protected void encode(int index, BufferedImage frame) throws IOException {
+            if (indexed == null || indexed.getWidth() != frame.getWidth() || indexed.getHeight() != frame.getHeight())
+                indexed = new BufferedImage(frame.getWidth(), frame.getHeight(), BufferedImage.TYPE_BYTE_INDEXED, PALETTE);
+            int[] src = ((DataBufferInt) frame.getRaster().getDataBuffer()).getData();
+            byte[] dst = ((DataBufferByte) indexed.getRaster().getDataBuffer()).getData();
+            for (int i = 0; i < src.length; i++) {
+                int rgb = src[i];
+                dst[i] = INDEX[((rgb >> 9) & 0x7C00) | ((rgb >> 6) & 0x3E0) | ((rgb >> 3) & 0x1F)];
+            }
+            writer.writeToSequence(new IIOImage(indexed, null, metadata()), null);
+            first = false;
+        }
+
+        // frame delay, and for the first frame the extension that makes the animation loop
+        private IIOMetadata metadata() throws IOException {
+            IIOMetadata metadata = writer.getDefaultImageMetadata(new ImageTypeSpecifier(indexed), null);
+            String format = metadata.getNativeMetadataFormatName();
+            IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(format);
+
+            IIOMetadataNode control = new IIOMetadataNode("GraphicControlExtension");
+            control.setAttribute("disposalMethod", "none");
+            control.setAttribute("userInputFlag", "FALSE");
+            control.setAttribute("transparentColorFlag", "FALSE");
+            control.setAttribute("delayTime", Integer.toString(delay));
+            control.setAttribute("transparentColorIndex", "0");
+            root.appendChild(control);
+
+            if (first) {
+                IIOMetadataNode extensions = new IIOMetadataNode("ApplicationExtensions");
+                IIOMetadataNode loop = new IIOMetadataNode("ApplicationExtension");
+                loop.setAttribute("applicationID", "NETSCAPE");
+                loop.setAttribute("authenticationCode", "2.0");
+                // sub-block 1, loop count 0 means forever
+                loop.setUserObject(new byte[]{1, 0, 0});
+                extensions.appendChild(loop);
+                root.appendChild(extensions);
+            }
+            metadata.setFromTree(format, root);
+            return metadata;
+        }
+
+        @Override
+        protected void finish() throws IOException {
+            try {
+                writer.endWriteSequence();
+            } finally {
+                writer.dispose();
+                out.close();
+            }
+        }
+
+        // 6x6x6 color cube followed by 40 grays
+        private static IndexColorModel palette() {
+            byte[] r = new byte[256], g = new byte[256], b = new byte[256];
+            for (int i = 0; i < 216; i++) {
+                r[i] = (byte) (i / 36 * 51);
+                g[i] = (byte) (i / 6 % 6 * 51);
+                b[i] = (byte) (i % 6 * 51);
+            }
+            for (int i = 0; i < 40; i++)
+                r[216 + i] = g[216 + i] = b[216 + i] = (byte) (i * 255 / 39);
+            return new IndexColorModel(8, 256, r, g, b);
+        }
+
+        // 5 bit channel to 8 bits, so black and white stay exact
+        private static int expand(int c) {
+            return (c << 3) | (c >> 2);
+        }
+
+        private static int nearest(int r, int g, int b) {
+            int max = Math.max(r, Math.max(g, b)), min = Math.min(r, Math.min(g, b));
+            if (max - min < 16) return 216 + ((r + g + b) / 3 * 39 + 127) / 255;
+            return (r * 5 + 127) / 255 * 36 + (g * 5 + 127) / 255 * 6 + (b * 5 + 127) / 255;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package grid;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * class Layer represents a group of entities of a Scene that are
+ * composited together. The entities of a STATIC layer are rendered once
+ * into a cached image, which is only rendered again when the Camera
+ * changes or the layer is invalidated. The entities of a DYNAMIC layer
+ * are rendered every frame, clipped to the regions that changed.
+ */
+public class Layer {
+    public enum Kind { STATIC, DYNAMIC }
+
+    public final Kind kind;
+
+    // copy-on-write so the draw loop and painting can iterate it without locking
+    public final List<Entity> entities = new CopyOnWriteArrayList<>();
+
+    // image the entities of a static layer are rendered into
+    private BufferedImage cache;
+    private Camera.View cacheView;
+    private volatile boolean invalid = true;
+
+    public Layer(Kind kind) {
+        this.kind = kind;
+    }
+
+    public boolean isStatic() { return kind == Kind.STATIC; }
+
+    // add an entity to the layer
+    public void addEntity(Entity e) {
+        entities.add(e);
+        invalidate();
+    }
+
+    // makes a static layer render its entities again, e.g. after they changed
+    public void invalidate() {
+        invalid = true;
+    }
+
+    /**
+     * Renders a static layer into its cache if the cache is out of date.
+     * @return true if the cache was rendered again
+     */
+    boolean refresh(Camera c) {
+        Camera.View v = c.view();
+        if (!invalid && cacheView == v) return false;
+        invalid = false;
+        cacheView = v;
+        if (cache == null || cache.getWidth() != v.canvasWidth || cache.getHeight() != v.canvasHeight)
+            cache = new BufferedImage(v.canvasWidth, v.canvasHeight, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g2D = cache.createGraphics();
+        g2D.setComposite(AlphaComposite.Clear);
+        g2D.fillRect(0, 0, v.canvasWidth, v.canvasHeight);
+        g2D.setComposite(AlphaComposite.SrcOver);
+        for (Entity e : entities)
+            e.render(g2D, c);
+        g2D.dispose();
+        return true;
+    }
+
+    // draws the layer, static layers draw their cache
+    void render(Graphics2D g2D, Camera c) {
+        if (isStatic()) {
+            g2D.drawImage(cache, 0, 0, null);
+        } else {
+            for (Entity e : entities)
+                e.render(g2D, c);
+        }
+    }
+
+    /**
+     * Collects the dirty regions of a dynamic layer.
+     * @return false if an entity can't tell its dirty regions
+     */
+    boolean dirtyRegions(Camera c, List<Rectangle> dirty) {
+        boolean known = true;
+        // every entity is asked, so each of them sees the same frames
+        for (Entity e : entities) {
+            if (!(e instanceof DirtyRegions) || !((DirtyRegions) e).dirtyRegions(c, dirty))
+                known = false;
+        }
+        return known;
+    }
+}
@@ -0,0 +1,130 @@
+package grid;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * class OffscreenRenderer renders entities into images without Swing or a
+ * display, e.g. on headless build machines. Entities are drawn in layers
+ * as in a Scene. Frames are rendered into a small pool of reusable images
+ * and handed to a FrameExporter, so while a frame is encoded on the
+ * exporter's threads the next one is already rendered. Rendering waits
+ * when all images of the pool are still being encoded.
+ * <pre>
+ * OffscreenRenderer r = new OffscreenRenderer(camera, FrameExporter.png(dir, "frame", 2), 3);
+ * r.addEntity(simulation);
+ * for (int i = 0; i < frames; i++) {
+ *     simulation.update();
+ *     r.renderFrame();
+ * }
+ * r.close();
+ * </pre>
+ */
+public class OffscreenRenderer implements Closeable {
+    public final Camera camera;
+
+    // layers from bottom to top, the default layer is always on top
+    private final Layer defaultLayer = new Layer(Layer.Kind.DYNAMIC);
+    private final List<Layer> layers = new ArrayList<>();
+
+    // entities of the default dynamic layer
+    public final List<Entity> entities = defaultLayer.entities;
+
+    private Color background = Color.BLACK;
+
+    // images not being encoded, frames are rendered into them
+    private final BlockingQueue<BufferedImage> free;
+
+    // null if frames are only rendered with render()
+    private final FrameExporter exporter;
+    private int frames = 0;
+
+    /**
+     * @param camera camera frames are rendered with, its canvas is the size of a frame
+     * @param exporter exporter frames are handed to, or null
+     * @param buffers number of images in the pool, at least 2 so rendering overlaps encoding
+     */
+    public OffscreenRenderer(Camera camera, FrameExporter exporter, int buffers) {
+        this.camera = camera;
+        this.exporter = exporter;
+        layers.add(defaultLayer);
+        int n = Math.max(1, buffers);
+        free = new ArrayBlockingQueue<>(n);
+        for (int i = 0; i < n; i++)
+            free.add(new BufferedImage(camera.canvasWidth, camera.canvasHeight, BufferedImage.TYPE_INT_RGB));
+    }
+
+    // renderer without an exporter whose frames are read from render()
+    public OffscreenRenderer(Camera camera) {
+        this(camera, null, 1);
+    }
+
+    // add an entity to the default layer
+    public void addEntity(Entity e) {
+        defaultLayer.addEntity(e);
+    }
+
+    // add a layer below the default layer
+    public void addLayer(Layer layer) {
+        layers.add(layers.size() - 1, layer);
+    }
+
+    public void setBackground(Color background) {
+        this.background = background;
+    }
+
+    // number of frames handed to the exporter
+    public int frames() { return frames; }
+
+    /**
+     * Renders a frame and returns the image it was rendered into. The
+     * image is reused by the next call, it must not be kept.
+     */
+    public BufferedImage render() throws InterruptedException {
+        BufferedImage image = free.take();
+        draw(image);
+        free.add(image);
+        return image;
+    }
+
+    /**
+     * Renders a frame and hands it to the exporter, waits while every
+     * image of the pool is still being encoded.
+     */
+    public void renderFrame() throws IOException, InterruptedException {
+        if (exporter == null) throw new IllegalStateException("no exporter");
+        BufferedImage image = free.take();
+        try {
+            draw(image);
+            exporter.submit(frames, image, () -> free.add(image));
+        } catch (IOException | RuntimeException e) {
+            free.add(image);
+            throw e;
+        }
+        frames++;
+    }
+
+    // waits until all frames are encoded and closes the exporter
+    @Override
+    public void close() throws IOException {
+        if (exporter != null) exporter.close();
+    }
+
+    private void draw(BufferedImage image) {
+        for (Layer layer : layers) {
+            if (layer.isStatic()) layer.refresh(camera);
+        }
+        Graphics2D g2D = image.createGraphics();
+        g2D.setColor(background);
+        g2D.fillRect(0, 0, image.getWidth(), image.getHeight());
+        for (Layer layer : layers)
+            layer.render(g2D, camera);
+        g2D.dispose();
+    }
+}
@@ -0,0 +1,208 @@
+package grid;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * class RasterLayer draws large numbers of tile sized markers on the
+ * grid. Markers are culled against the visible tiles of the Camera and
+ * copied from prebaked sprites into the pixels of a canvas sized image,
+ * which is drawn with a single drawImage. When tiles are smaller than
+ * HEATMAP_TILE_SIZE pixels single markers can't be told apart, they are
+ * counted per HEATMAP_CELL pixel square cell and drawn as a density map.
+ * A layer is meant to be used by one render thread.
+ * <pre>
+ * layer.begin(camera);
+ * layer.draw(xs, ys, n, RasterLayer.Shape.OVAL, Color.RED);
+ * layer.end(g2D);
+ * </pre>
+ * While the camera does not change, a frame can also be updated tile by
+ * tile with clearTile() and drawTile() instead of being drawn again.
+ */
+public class RasterLayer {
+    public enum Shape { SQUARE, OVAL }
+
+    // tiles smaller than this are drawn as a density map
+    public static final int HEATMAP_TILE_SIZE = 4;
+
+    // side of a density map cell in pixels
+    public static final int HEATMAP_CELL = 8;
+
+    // maximum number of sprites kept in the cache
+    private static final int MAX_SPRITES = 64;
+
+    // canvas sized image the markers are drawn into, premultiplied so it composites fast
+    private BufferedImage image;
+    private int[] pixels;
+    private int width, height;
+
+    // markers counted per density map cell
+    private int[] cells;
+    private int cellsX, cellsY;
+
+    // view of the camera the current frame is drawn with
+    private Camera.View view;
+
+    // sprites keyed by (color, tile size, shape)
+    private final Map<Long, int[]> sprites = new HashMap<>();
+
+    // starts a frame, clears the layer and sizes it to the canvas of the camera
+    public void begin(Camera c) {
+        if (image == null || width != c.canvasWidth || height != c.canvasHeight) {
+            width = c.canvasWidth;
+            height = c.canvasHeight;
+            image = new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_ARGB_PRE);
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            cellsX = (width + HEATMAP_CELL - 1) / HEATMAP_CELL;
+            cellsY = (height + HEATMAP_CELL - 1) / HEATMAP_CELL;
+            cells = new int[cellsX * cellsY];
+        } else {
+            Arrays.fill(pixels, 0);
+        }
+        view = c.view();
+    }
+
+    /**
+     * Returns true if the layer holds a frame of sprites drawn with the
+     * current view of the camera, which can be updated tile by tile.
+     */
+    public boolean isCurrent(Camera c) {
+        return view != null && view == c.view() && view.tileSize >= HEATMAP_TILE_SIZE;
+    }
+
+    // makes the tile of a grid point transparent
+    public void clearTile(int x, int y) {
+        if (!view.isVisible(x, y)) return;
+        int size = view.tileSize, screenX = view.screenX(x), screenY = view.screenY(y);
+        int fromX = Math.max(0, screenX), toX = Math.min(width, screenX + size);
+        if (fromX >= toX) return;
+        for (int row = Math.max(0, screenY), toY = Math.min(height, screenY + size); row < toY; row++)
+            Arrays.fill(pixels, row * width + fromX, row * width + toX, 0);
+    }
+
+    // draws a marker on the tile of a grid point, over what the tile already shows
+    public void drawTile(int x, int y, Shape shape, Color color) {
+        if (view.isVisible(x, y)) drawSprite(view.screenX(x), view.screenY(y), sprite(shape, color));
+    }
+
+    /**
+     * Draws a marker on the tile of every point that is visible, markers
+     * of later points are drawn over those of earlier ones.
+     * @param xs grid x coordinate of point i is xs[i]
+     * @param ys grid y coordinate of point i is ys[i]
+     * @param n number of points
+     * @param shape shape of the markers
+     * @param color color of the markers
+     */
+    public void draw(int[] xs, int[] ys, int n, Shape shape, Color color) {
+        if (view.tileSize < HEATMAP_TILE_SIZE)
+            drawDensity(xs, ys, n, color);
+        else
+            drawSprites(xs, ys, n, sprite(shape, color));
+    }
+
+    // ends the frame by drawing the layer
+    public void end(Graphics2D g2D) {
+        g2D.drawImage(image, 0, 0, null);
+    }
+
+    private void drawSprites(int[] xs, int[] ys, int n, int[] sprite) {
+        Camera.View v = view;
+        int minX = v.minX, maxX = v.maxX, minY = v.minY, maxY = v.maxY;
+        for (int i = 0; i < n; i++) {
+            int x = xs[i], y = ys[i];
+            if (x < minX || x > maxX || y < minY || y > maxY) continue;
+            drawSprite(v.screenX(x), v.screenY(y), sprite);
+        }
+    }
+
+    // draws a sprite with its top-left corner at the given pixel
+    private void drawSprite(int screenX, int screenY, int[] sprite) {
+        int size = view.tileSize;
+
+        // clip the sprite to the canvas
+        int fromX = Math.max(0, -screenX), toX = Math.min(size, width - screenX);
+        int fromY = Math.max(0, -screenY), toY = Math.min(size, height - screenY);
+        for (int y = fromY; y < toY; y++) {
+            int src = y * size, dst = (screenY + y) * width + screenX;
+            for (int x = fromX; x < toX; x++) {
+                int pixel = sprite[src + x];
+                // opaque pixels and pixels over nothing are copied, the rest blended
+                if ((pixel >>> 24) == 0xFF || pixels[dst + x] == 0)
+                    pixels[dst + x] = pixel;
+                else if (pixel != 0)
+                    pixels[dst + x] = over(pixel, pixels[dst + x]);
+            }
+        }
+    }
+
+    private void drawDensity(int[] xs, int[] ys, int n, Color color) {
+        Arrays.fill(cells, 0);
+        Camera.View v = view;
+        int size = v.tileSize, half = size / 2;
+        for (int i = 0; i < n; i++) {
+            if (!v.isVisible(xs[i], ys[i])) continue;
+            // a marker is counted in the cell of its center
+            int x = v.screenX(xs[i]) + half, y = v.screenY(ys[i]) + half;
+            if (x < 0 || x >= width || y < 0 || y >= height) continue;
+            cells[(y / HEATMAP_CELL) * cellsX + x / HEATMAP_CELL]++;
+        }
+
+        // a cell is opaque once it is full, fainter the fewer markers it holds
+        double capacity = Math.max(1.0, (double) HEATMAP_CELL * HEATMAP_CELL / (size * size));
+        int rgb = color.getRGB();
+        for (int cy = 0; cy < cellsY; cy++) {
+            for (int cx = 0; cx < cellsX; cx++) {
+                int count = cells[cy * cellsX + cx];
+                if (count == 0) continue;
+                int alpha = 48 + (int) (207 * Math.min(1.0, count / capacity));
+                int pixel = premultiply(rgb, alpha);
+                int x = cx * HEATMAP_CELL, toX = Math.min(width, x + HEATMAP_CELL);
+                for (int y = cy * HEATMAP_CELL, toY = Math.min(height, y + HEATMAP_CELL); y < toY; y++)
+                    Arrays.fill(pixels, y * width + x, y * width + toX, pixel);
+            }
+        }
+    }
+
+    // returns the premultiplied pixels of a tile sized marker
+    private int[] sprite(Shape shape, Color color) {
+        int tileSize = view.tileSize;
+        long key = ((long) color.getRGB() << 32) | ((long) tileSize << 1) | shape.ordinal();
+        int[] sprite = sprites.get(key);
+        if (sprite == null) {
+            if (sprites.size() >= MAX_SPRITES) sprites.clear();
+            BufferedImage image = new BufferedImage(tileSize, tileSize, BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D g = image.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setColor(color);
+            if (shape == Shape.OVAL)
+                g.fillOval(0, 0, tileSize, tileSize);
+            else
+                g.fillRect(0, 0, tileSize, tileSize);
+            g.dispose();
+            sprite = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            sprites.put(key, sprite);
+        }
+        return sprite;
+    }
+
+    // premultiplied src drawn over premultiplied dst
+    private static int over(int src, int dst) {
+        int keep = 255 - (src >>> 24);
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 8)
+            result |= (((src >>> shift) & 0xFF) + ((dst >>> shift) & 0xFF) * keep / 255) << shift;
+        return result;
+    }
+
+    private static int premultiply(int rgb, int alpha) {
+        int r = ((rgb >> 16) & 0xFF) * alpha / 255;
+        int g = ((rgb >> 8) & 0xFF) * alpha / 255;
+        int b = (rgb & 0xFF) * alpha / 255;
+        return (alpha << 24) | (r << 16) | (g << 8) | b;
+    }
+}
@@ -1,17 +1,42 @@
 package grid;
 
+import util.Histogram;
+import util.Metrics;
+
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionListener;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * class Scene represents the panel entities are drawn on. In PASSIVE mode
+ * the draw loop asks Swing to repaint the panel, Swing may delay or
+ * coalesce the request. In ACTIVE mode the draw loop thread renders into
+ * the back buffer of a Canvas and flips it itself, so frames are shown
+ * when the loop renders them. If no buffer strategy can be created an
+ * ACTIVE scene falls back to repainting its canvas.
+ * Entities are drawn in layers, see Layer. Frames are composited into an
+ * image kept between frames, while the camera does not move only the
+ * regions reported by DirtyRegions entities are composited again.
+ */
 public class Scene extends JPanel {
+    public enum RenderMode { PASSIVE, ACTIVE }
+
+    // with more dirty regions than this the whole frame is composited
+    private static final int MAX_DIRTY_REGIONS = 1024;
+
     // size of the display canvas in pixels
     private final int canvasWidth;
     private final int canvasHeight;
@@ -19,8 +44,33 @@ public class Scene extends JPanel {
     public final DrawLoop drawLoop;
     public final Camera camera;
     public final EventQueue eventQueue = new EventQueue();
-    public final List<Entity> entities = Collections.synchronizedList(new ArrayList<>());
 
+    // layers from bottom to top, the default layer is always on top
+    private final Layer defaultLayer = new Layer(Layer.Kind.DYNAMIC);
+    private final List<Layer> layers = new CopyOnWriteArrayList<>();
+
+    // entities of the default dynamic layer
+    public final List<Entity> entities = defaultLayer.entities;
+
+    // last composited frame and the camera view it was composited with
+    private BufferedImage frame;
+    private Camera.View frameView;
+    private final List<Rectangle> dirty = new ArrayList<>();
+
+    // time spent compositing and number of full and partial frames, null if metrics are disabled
+    private volatile Histogram paintTime;
+    private volatile LongAdder fullFrames, partialFrames;
+
+    private final RenderMode renderMode;
+
+    // canvas rendered to in ACTIVE mode, null in PASSIVE mode
+    private final Canvas canvas;
+
+    // back buffers of the canvas, created by the draw loop once the canvas is displayable
+    private BufferStrategy bufferStrategy;
+
+    // set if the buffer strategy could not be created, the canvas is repainted instead
+    private volatile boolean fallback = false;
 
     public Scene(
             int canvasWidth, int canvasHeight,
@@ -28,6 +78,21 @@ public class Scene extends JPanel {
             int topLeftX, int topLeftY,
             int offSetX, int offsetY
     ) {
+        this(canvasWidth, canvasHeight, tileSize, topLeftX, topLeftY, offSetX, offsetY, RenderMode.PASSIVE);
+    }
+
+    /**
+     * @param renderMode how frames rendered by the draw loop get to the screen
+     */
+    public Scene(
+            int canvasWidth, int canvasHeight,
+            int tileSize,
+            int topLeftX, int topLeftY,
+            int offSetX, int offsetY,
+            RenderMode renderMode
+    ) {
+        this.renderMode = renderMode;
+        layers.add(defaultLayer);
         this.canvasWidth = canvasWidth;
         this.canvasHeight = canvasHeight;
         this.camera = new Camera(canvasWidth, canvasHeight, tileSize, topLeftX, topLeftY, offSetX, offsetY);
@@ -37,18 +102,45 @@ public class Scene extends JPanel {
             protected void update() { Scene.this.update(); }
 
             @Override
-            protected void render() { Scene.this.repaint(); }
+            protected void render() { Scene.this.render(); }
         };
 
         this.setPreferredSize(new Dimension(canvasWidth, canvasHeight));
         this.setBackground(Color.BLACK);
         this.setDoubleBuffered(true);
 
+        Component input = this;
+        if (renderMode == RenderMode.ACTIVE) {
+            canvas = new Canvas() {
+                // only used when there are no back buffers
+                @Override
+                public void paint(Graphics g) { paintFrame(g); }
+
+                @Override
+                public void update(Graphics g) { paint(g); }
+            };
+            canvas.setPreferredSize(new Dimension(canvasWidth, canvasHeight));
+            canvas.setBackground(Color.BLACK);
+            // the draw loop paints the canvas, paint requests of the system are ignored
+            canvas.setIgnoreRepaint(true);
+            this.setLayout(new BorderLayout());
+            this.add(canvas, BorderLayout.CENTER);
+            input = canvas;
+        } else {
+            canvas = null;
+        }
+
         // Event listeners
-        this.addMouseMotionListener(new ZoomPanHandler());
-        this.addMouseWheelListener(new ZoomPanHandler());
+        ZoomPanHandler zoomPanHandler = new ZoomPanHandler();
+        input.addMouseMotionListener(zoomPanHandler);
+        input.addMouseWheelListener(zoomPanHandler);
     }
 
+    public RenderMode renderMode() { return renderMode; }
+
+    // returns true if an ACTIVE scene could not create back buffers and repaints instead
+    public boolean isFallback() { return fallback; }
+
     // add an entity to the scene
     public void addEntity(Entity e) {
         entities.add(e);
@@ -59,38 +151,145 @@ public class Scene extends JPanel {
         this.entities.addAll(entities);
     }
 
+    // adds a layer on top of the layers added before, below the default layer
+    public void addLayer(Layer layer) {
+        layers.add(layers.size() - 1, layer);
+    }
+
+    /**
+     * Records the timing of the draw loop and of painting into the given
+     * registry. In PASSIVE mode rendering on the draw loop only requests a
+     * repaint, the entities are painted later on the Swing thread.
+     * @param metrics registry to record into, null to disable metrics
+     */
+    public void setMetrics(Metrics metrics) {
+        drawLoop.setMetrics(metrics);
+        paintTime = (metrics == null) ? null : metrics.histogram("scene.paint.ns");
+        fullFrames = (metrics == null) ? null : metrics.counter("scene.fullFrames");
+        partialFrames = (metrics == null) ? null : metrics.counter("scene.partialFrames");
+    }
+
     // the update phase of draw loop
     private void update() {
         // consume all pending events
-        int sz = eventQueue.size();
-        while (sz-- > 0)
-            eventQueue.dequeue().consume();
+        eventQueue.drainTo(Event::consume);
 
         // update all entities
-        for (Entity e : entities)
-            e.update();
+        for (Layer layer : layers) {
+            for (Entity e : layer.entities)
+                e.update();
+        }
+    }
+
+    // the render phase of draw loop
+    private void render() {
+        if (canvas == null) {
+            repaint();
+            return;
+        }
+        BufferStrategy strategy = bufferStrategy();
+        if (strategy == null) {
+            if (fallback) canvas.repaint();
+            return;
+        }
+        // the buffers can be lost while rendering, e.g. on a display change
+        do {
+            do {
+                Graphics2D g2D = (Graphics2D) strategy.getDrawGraphics();
+                try {
+                    paintFrame(g2D);
+                } finally {
+                    g2D.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    // returns the back buffers of the canvas, null until the canvas is displayable
+    private BufferStrategy bufferStrategy() {
+        if (bufferStrategy == null && !fallback && canvas.isDisplayable()) {
+            try {
+                canvas.createBufferStrategy(2);
+                bufferStrategy = canvas.getBufferStrategy();
+            } catch (RuntimeException e) {
+                fallback = true;
+            }
+        }
+        return bufferStrategy;
     }
 
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        Graphics2D g2D = (Graphics2D) g;
-        for (Entity e : entities)
-            e.render(g2D, camera);
+        // the graphics belongs to Swing, it must not be disposed here
+        if (canvas == null) paintFrame(g);
+    }
+
+    // composites the frame and draws it, used by both render modes
+    private synchronized void paintFrame(Graphics g) {
+        Histogram paint = paintTime;
+        long start = (paint != null) ? System.nanoTime() : 0;
+        composite();
+        g.drawImage(frame, 0, 0, null);
+        if (paint != null) paint.record(System.nanoTime() - start);
+    }
+
+    // brings the frame up to date, only the dirty regions if the camera did not change
+    private void composite() {
+        Camera.View view = camera.view();
+        boolean full = frame == null || frameView != view;
+        for (Layer layer : layers) {
+            if (layer.isStatic() && layer.refresh(camera)) full = true;
+        }
+        dirty.clear();
+        if (!full) {
+            for (Layer layer : layers) {
+                if (!layer.isStatic() && !layer.dirtyRegions(camera, dirty)) full = true;
+            }
+            if (dirty.size() > MAX_DIRTY_REGIONS) full = true;
+        }
+
+        if (frame == null) frame = new BufferedImage(canvasWidth, canvasHeight, BufferedImage.TYPE_INT_RGB);
+        frameView = view;
+        Graphics2D g2D = frame.createGraphics();
+        if (!full) {
+            Path2D.Float clip = new Path2D.Float();
+            for (Rectangle r : dirty)
+                clip.append(r, false);
+            g2D.setClip(clip);
+        }
+        g2D.setColor(getBackground());
+        g2D.fillRect(0, 0, canvasWidth, canvasHeight);
+        for (Layer layer : layers)
+            layer.render(g2D, camera);
         g2D.dispose();
+
+        LongAdder frames = full ? fullFrames : partialFrames;
+        if (frames != null) frames.increment();
     }
 
 
-    // Allows zooming (scroll) and panning (drag) using the mouse
+    // Allows zooming (scroll) and panning (drag) using the mouse.
+    // Input is accumulated and applied as a single event per frame.
     private class ZoomPanHandler implements MouseMotionListener, MouseWheelListener {
         private Point cursor;
 
+        // pan and zoom not yet applied to the camera
+        private final AtomicInteger pendingX = new AtomicInteger();
+        private final AtomicInteger pendingY = new AtomicInteger();
+        private final AtomicInteger pendingZoom = new AtomicInteger();
+
+        // is an event applying the pending input in the event queue?
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
         @Override
         public void mouseDragged(MouseEvent e) {
             if (cursor != null) {
-                int diffX = e.getPoint().x - cursor.x, diffY = e.getPoint().y - cursor.y;
-                eventQueue.enqueue(() -> camera.addOffset(diffX, diffY));
-                cursor = e.getPoint();
+                pendingX.addAndGet(e.getPoint().x - cursor.x);
+                pendingY.addAndGet(e.getPoint().y - cursor.y);
+                schedule();
             }
             cursor = e.getPoint();
         }
@@ -102,8 +301,22 @@ public class Scene extends JPanel {
 
         @Override
         public void mouseWheelMoved(MouseWheelEvent e) {
-            eventQueue.enqueue(() -> camera.zoom(-e.getWheelRotation()));
+            pendingZoom.addAndGet(-e.getWheelRotation());
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true))
+                eventQueue.enqueue(this::apply);
+        }
+
+        // runs on the draw loop
+        private void apply() {
+            // input arriving after this schedules a new event
+            scheduled.set(false);
+            int x = pendingX.getAndSet(0), y = pendingY.getAndSet(0), zoom = pendingZoom.getAndSet(0);
+            if (x != 0 || y != 0) camera.addOffset(x, y);
+            if (zoom != 0) camera.zoom(zoom);
         }
     }
 }
-
@@ -0,0 +1,103 @@
+package kcf;
+
+import java.util.Arrays;
+
+/**
+ * class ActivationHeap is a binary min-heap of robot indices
+ * keyed by the time of their next activation. Every robot is
+ * in the heap at most once. Ties are broken by robot index so
+ * the order of activations is deterministic.
+ */
+class ActivationHeap {
+    // robot indices in heap order
+    private final int[] heap;
+
+    // time[i] is the activation time of robot i
+    private final long[] time;
+
+    // index[i] is the position of robot i in heap, -1 if it is not in the heap
+    private final int[] index;
+
+    private int size = 0;
+
+    ActivationHeap(int robots) {
+        heap = new int[robots];
+        time = new long[robots];
+        index = new int[robots];
+        Arrays.fill(index, -1);
+    }
+
+    boolean isEmpty() { return size == 0; }
+
+    int size() { return size; }
+
+    // returns the activation time of the first robot
+    long peekTime() { return time[heap[0]]; }
+
+    // returns the k-th robot in heap order
+    int get(int k) { return heap[k]; }
+
+    // returns the activation time of a robot in the heap
+    long time(int robot) { return time[robot]; }
+
+    boolean contains(int robot) { return index[robot] >= 0; }
+
+    // removes all robots
+    void clear() {
+        for (int k = 0; k < size; k++)
+            index[heap[k]] = -1;
+        size = 0;
+    }
+
+    // adds robot with activation time t, the robot must not be in the heap
+    void push(int robot, long t) {
+        time[robot] = t;
+        heap[size] = robot;
+        index[robot] = size;
+        siftUp(size++);
+    }
+
+    // removes and returns the robot with the earliest activation time
+    int poll() {
+        int robot = heap[0];
+        index[robot] = -1;
+        if (--size > 0) {
+            heap[0] = heap[size];
+            index[heap[0]] = 0;
+            siftDown(0);
+        }
+        return robot;
+    }
+
+    private boolean less(int a, int b) {
+        return time[a] < time[b] || (time[a] == time[b] && a < b);
+    }
+
+    private void siftUp(int i) {
+        int robot = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(robot, heap[parent])) break;
+            heap[i] = heap[parent];
+            index[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = robot;
+        index[robot] = i;
+    }
+
+    private void siftDown(int i) {
+        int robot = heap[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && less(heap[child + 1], heap[child])) child++;
+            if (!less(heap[child], robot)) break;
+            heap[i] = heap[child];
+            index[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = robot;
+        index[robot] = i;
+    }
+}
@@ -0,0 +1,131 @@
+package kcf;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * class AsyncScheduler activates every robot independently. Each
+ * robot has the time of its next activation in a heap, a tick
+ * processes all activations of the earliest time, so a tick costs
+ * O(k log n) for k activations and never scans all robots.
+ * The computation of a robot only depends on the snapshot taken
+ * when it looks, so it is done right after the look.
+ * A round ends when every robot completed at least one cycle, without
+ * robots every tick ends a round.
+ */
+class AsyncScheduler extends Scheduler {
+    private static final byte LOOK = 0;
+    private static final byte MOVE = 1;
+
+    private final int maxDelay;
+
+    private ActivationHeap heap;
+
+    // phase[i] is what robot i does on its next activation
+    private byte[] phase;
+
+    // cycleRound[i] is the last round in which robot i completed a cycle
+    private int[] cycleRound;
+
+    // number of robots that completed a cycle in the current round
+    private int completed = 0;
+
+    // time of the last processed activation
+    private long now = 0;
+
+    AsyncScheduler(int maxDelay) {
+        if (maxDelay < 1)
+            throw new IllegalArgumentException("maxDelay must be at least 1: " + maxDelay);
+        this.maxDelay = maxDelay;
+    }
+
+    @Override
+    void init(Simulation s, int robots) {
+        super.init(s, robots);
+        heap = new ActivationHeap(robots);
+        phase = new byte[robots];
+        cycleRound = new int[robots];
+        for (int i = 0; i < robots; i++)
+            heap.push(i, delay() - 1);
+    }
+
+    @Override
+    void tick(Simulation s) {
+        if (s.getState() != SimulationStates.CYCLE) return;
+        if (s.getRound() == 0) {
+            s.nextRound();
+        } else if (heap.isEmpty()) {
+            // without robots every round is complete at once, as under the synchronous schedulers
+            s.nextRound();
+        }
+        if (heap.isEmpty()) return;
+
+        now = heap.peekTime();
+        while (!heap.isEmpty() && heap.peekTime() == now && s.getState() == SimulationStates.CYCLE) {
+            int i = heap.poll();
+            if (phase[i] == LOOK) {
+                s.lookCompute(i);
+                phase[i] = MOVE;
+            } else if (!s.moveStep(i)) {
+                phase[i] = LOOK;
+                complete(s, i);
+            }
+            heap.push(i, now + delay());
+        }
+    }
+
+    private void complete(Simulation s, int i) {
+        if (cycleRound[i] == s.getRound()) return;
+        cycleRound[i] = s.getRound();
+        if (++completed == robots) {
+            completed = 0;
+            s.nextRound();
+        }
+    }
+
+    @Override
+    void save(DataOutput out) throws IOException {
+        out.writeLong(now);
+        out.writeInt(completed);
+        for (int i = 0; i < robots; i++) {
+            out.writeByte(phase[i]);
+            out.writeInt(cycleRound[i]);
+        }
+        out.writeInt(heap.size());
+        for (int k = 0; k < heap.size(); k++) {
+            out.writeInt(heap.get(k));
+            out.writeLong(heap.time(heap.get(k)));
+        }
+    }
+
+    @Override
+    void restore(DataInput in) throws IOException {
+        now = in.readLong();
+        completed = in.readInt();
+        for (int i = 0; i < robots; i++) {
+            phase[i] = in.readByte();
+            cycleRound[i] = in.readInt();
+        }
+        heap.clear();
+        int size = in.readInt();
+        if (size < 0 || size > robots) throw new IOException("invalid activation heap size: " + size);
+        for (int k = 0; k < size; k++) {
+            int robot = in.readInt();
+            if (robot < 0 || robot >= robots) throw new IOException("invalid robot in activation heap: " + robot);
+            // a robot pushed twice would corrupt the heap's index
+            if (heap.contains(robot)) throw new IOException("robot in activation heap twice: " + robot);
+            heap.push(robot, in.readLong());
+        }
+    }
+
+    // random delay in [1, maxDelay]
+    private int delay() {
+        return 1 + random.nextInt(maxDelay);
+    }
+
+    @Override
+    public String toString() {
+        return "ASYNC(" + maxDelay + ")";
+    }
+}
@@ -0,0 +1,48 @@
+package kcf;
+
+/**
+ * class Collision represents a conflict between two robots
+ * in a step of the move phase of a Simulation.
+ */
+public class Collision {
+
+    public enum Type {
+        // both robots are on the same point after the step
+        VERTEX,
+        // the robots exchanged their points during the step
+        SWAP
+    }
+
+    // round the move phase belongs to
+    public final int round;
+
+    // step of the move phase, the first step is 1
+    public final int step;
+
+    // robot that moved in the step
+    public final int robot;
+
+    // robot it collided with, for a SWAP it also moved
+    public final int other;
+
+    // point robot is on after the step
+    public final int x, y;
+
+    public final Type type;
+
+    public Collision(int round, int step, int robot, int other, int x, int y, Type type) {
+        this.round = round;
+        this.step = step;
+        this.robot = robot;
+        this.other = other;
+        this.x = x;
+        this.y = y;
+        this.type = type;
+    }
+
+    @Override
+    public String toString() {
+        return type + " round " + round + " step " + step + " robots " + robot + " and " + other
+                + " at (" + x + ", " + y + ")";
+    }
+}
@@ -0,0 +1,113 @@
+package kcf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * interface ComputeExecutor represents a strategy for running
+ * the compute phase of a Simulation. In the synchronous model
+ * the computation of every robot only depends on the shared
+ * snapshot taken in the look phase, so robots can be computed
+ * in any order or in parallel.
+ */
+public interface ComputeExecutor {
+
+    /**
+     * Runs task for every index in [0, n) and returns once all of them are done
+     * @param n number of tasks
+     * @param task task to run for each index
+     */
+    void forEach(int n, IntConsumer task);
+
+
+    // runs all tasks one after the other on the calling thread
+    ComputeExecutor SEQUENTIAL = (n, task) -> {
+        for (int i = 0; i < n; i++)
+            task.accept(i);
+    };
+
+
+    /**
+     * Returns an executor that splits the tasks recursively on a ForkJoinPool
+     * @param pool pool to run the tasks on
+     * @param threshold maximum number of tasks run sequentially by a single fork
+     * @return a fork-join compute executor
+     */
+    static ComputeExecutor forkJoin(ForkJoinPool pool, int threshold) {
+        int t = Math.max(1, threshold);
+        return (n, task) -> pool.invoke(new ForEachAction(0, n, t, task));
+    }
+
+    // fork-join executor on the common pool
+    static ComputeExecutor forkJoin() {
+        return forkJoin(ForkJoinPool.commonPool(), 64);
+    }
+
+
+    /**
+     * Returns an executor that submits the tasks in chunks to an ExecutorService.
+     * On JDK 21+ this can be backed by a virtual thread per task executor.
+     * @param executor executor to submit the chunks to
+     * @param chunkSize number of tasks run by a single submission
+     * @return a compute executor backed by executor
+     */
+    static ComputeExecutor of(ExecutorService executor, int chunkSize) {
+        int c = Math.max(1, chunkSize);
+        return (n, task) -> {
+            List<Future<?>> futures = new ArrayList<>((n + c - 1) / c);
+            for (int from = 0; from < n; from += c) {
+                int lo = from, hi = Math.min(n, from + c);
+                futures.add(executor.submit(() -> {
+                    for (int i = lo; i < hi; i++)
+                        task.accept(i);
+                }));
+            }
+            for (Future<?> f : futures) {
+                try {
+                    f.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("interrupted during compute", e);
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("compute task failed", e.getCause());
+                }
+            }
+        };
+    }
+}
+
+
+// splits [from, to) in halves until it is at most 'threshold' long
+class ForEachAction extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final int from, to, threshold;
+    private final IntConsumer task;
+
+    ForEachAction(int from, int to, int threshold, IntConsumer task) {
+        this.from = from;
+        this.to = to;
+        this.threshold = threshold;
+        this.task = task;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= threshold) {
+            for (int i = from; i < to; i++)
+                task.accept(i);
+        } else {
+            int mid = (from + to) >>> 1;
+            invokeAll(
+                    new ForEachAction(from, mid, threshold, task),
+                    new ForEachAction(mid, to, threshold, task)
+            );
+        }
+    }
+}
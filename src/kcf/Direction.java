@@ -4,5 +4,14 @@ public enum Direction {
     UP,
     LEFT,
     DOWN,
-    RIGHT
+    RIGHT;
+
+    // returns the direction mirrored along the y-axis
+    public Direction mirrorX() {
+        switch (this) {
+            case LEFT: return RIGHT;
+            case RIGHT: return LEFT;
+            default: return this;
+        }
+    }
 }
@@ -0,0 +1,54 @@
+package kcf;
+
+/**
+ * class HeadlessRunner runs a Simulation without a Scene.
+ * The look-compute-move cycle is executed as fast as possible,
+ * without frame pacing and without logging.
+ */
+public class HeadlessRunner {
+
+    private HeadlessRunner() {}
+
+    /**
+     * Runs the simulation until maxRounds rounds are completed,
+     * the simulation is complete or it goes to error state.
+     * Move phases are finished at once instead of step by step.
+     * @param s simulation to run, it is started if it is ready
+     * @param maxRounds maximum number of rounds to execute
+     * @return result of the run
+     */
+    public static RunResult run(Simulation s, int maxRounds) {
+        return run(s, maxRounds, true);
+    }
+
+    /**
+     * @param s simulation to run, it is started if it is ready
+     * @param maxRounds maximum number of rounds to execute
+     * @param jumpMoves finish move phases at once instead of step by step
+     * @return result of the run
+     */
+    public static RunResult run(Simulation s, int maxRounds, boolean jumpMoves) {
+        s.setVerbose(false);
+        s.start();
+        while (running(s, maxRounds)) {
+            if (jumpMoves && s.getState() == SimulationStates.MOVE)
+                s.jumpMove();
+            else
+                s.advance();
+        }
+        return new RunResult(s.getRound(), s.getState(), s.getPositions(), s.getCollisions());
+    }
+
+    private static boolean running(Simulation s, int maxRounds) {
+        switch (s.getState()) {
+            case CYCLE:
+                return s.getRound() < maxRounds;
+            case LOOK:
+            case COMPUTE:
+            case MOVE:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
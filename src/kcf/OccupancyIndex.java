@@ -0,0 +1,132 @@
+package kcf;
+
+import java.util.Arrays;
+
+/**
+ * class OccupancyIndex counts the number of robots on every
+ * occupied grid point. Points are packed into a single long
+ * and stored in an open-addressing hash table with linear
+ * probing, so no objects are allocated per point.
+ */
+public class OccupancyIndex {
+    private static final float MAX_LOAD = 0.5f;
+
+    // packed points, slot i is empty iff counts[i] == 0
+    private long[] keys;
+    private int[] counts;
+
+    // number of occupied slots
+    private int size = 0;
+
+    private int mask;
+
+    /**
+     * @param expected expected number of distinct occupied points
+     */
+    public OccupancyIndex(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expected / MAX_LOAD)) - 1) << 1;
+        keys = new long[capacity];
+        counts = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    // packs the point (x, y) into a long
+    public static long pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    public static int unpackX(long key) { return (int) (key >> 32); }
+
+    public static int unpackY(long key) { return (int) key; }
+
+    // returns the number of distinct occupied points
+    public int size() { return size; }
+
+    // returns the number of robots on (x, y)
+    public int count(int x, int y) {
+        long key = pack(x, y);
+        for (int i = slot(key); counts[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) return counts[i];
+        }
+        return 0;
+    }
+
+    // adds a robot on (x, y) and returns the number of robots now on it
+    public int add(int x, int y) {
+        long key = pack(x, y);
+        int i = slot(key);
+        for (; counts[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) return ++counts[i];
+        }
+        keys[i] = key;
+        counts[i] = 1;
+        if (++size > MAX_LOAD * keys.length) grow();
+        return 1;
+    }
+
+    // removes a robot from (x, y) and returns the number of robots left on it
+    public int remove(int x, int y) {
+        long key = pack(x, y);
+        for (int i = slot(key); counts[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                if (--counts[i] == 0) {
+                    size--;
+                    shiftBack(i);
+                    return 0;
+                }
+                return counts[i];
+            }
+        }
+        return 0;
+    }
+
+    // moves a robot from (fromX, fromY) to (toX, toY) and returns the number of robots now on (toX, toY)
+    public int move(int fromX, int fromY, int toX, int toY) {
+        remove(fromX, fromY);
+        return add(toX, toY);
+    }
+
+    public void clear() {
+        Arrays.fill(counts, 0);
+        size = 0;
+    }
+
+    // refills the hole at 'hole' with entries further along their probe sequence
+    private void shiftBack(int hole) {
+        for (int i = (hole + 1) & mask; counts[i] != 0; i = (i + 1) & mask) {
+            int home = slot(keys[i]);
+            // entry at i may move to hole only if hole lies cyclically in [home, i)
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                counts[hole] = counts[i];
+                counts[i] = 0;
+                hole = i;
+            }
+        }
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new long[oldKeys.length << 1];
+        counts = new int[oldCounts.length << 1];
+        mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldCounts[j] == 0) continue;
+            int i = slot(oldKeys[j]);
+            while (counts[i] != 0) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            counts[i] = oldCounts[j];
+        }
+    }
+
+    private int slot(long key) {
+        // finalizer of MurmurHash3
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+}
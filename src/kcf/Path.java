@@ -0,0 +1,167 @@
+package kcf;
+
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+
+/**
+ * class Path represents a path on the grid as a list of runs,
+ * a run being a direction and the number of steps taken in it.
+ * A cursor marks the next step, polling the path advances the
+ * cursor, so memory use depends on the number of turns and not
+ * on the length of the path.
+ */
+public class Path extends AbstractQueue<Direction> {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    // direction and number of steps of every run
+    private byte[] directions = new byte[4];
+    private int[] lengths = new int[4];
+
+    // number of runs
+    private int runs = 0;
+
+    // cursor: next step is step 'taken' of run 'run'
+    private int run = 0;
+    private int taken = 0;
+
+    // number of steps after the cursor
+    private int remaining = 0;
+
+    /**
+     * Returns queue as a Path. Paths are returned as is,
+     * other queues are drained into a new Path.
+     */
+    public static Path of(Queue<Direction> queue) {
+        if (queue instanceof Path) return (Path) queue;
+        Path path = new Path();
+        while (!queue.isEmpty())
+            path.offer(queue.poll());
+        return path;
+    }
+
+    // appends 'length' steps in direction d and returns this path
+    public Path append(Direction d, int length) {
+        if (length < 0) throw new IllegalArgumentException("negative run length: " + length);
+        if (length == 0) return this;
+        if (runs > run && directions[runs - 1] == d.ordinal()) {
+            lengths[runs - 1] += length;
+        } else {
+            if (runs == directions.length) {
+                directions = Arrays.copyOf(directions, runs * 2);
+                lengths = Arrays.copyOf(lengths, runs * 2);
+            }
+            directions[runs] = (byte) d.ordinal();
+            lengths[runs] = length;
+            runs++;
+        }
+        remaining += length;
+        return this;
+    }
+
+    // replaces the steps of this path with the remaining steps of 'path'
+    public void set(Path path) {
+        if (path == this) return;
+        clear();
+        for (int i = path.run; i < path.runs; i++)
+            append(DIRECTIONS[path.directions[i]], path.lengths[i] - ((i == path.run) ? path.taken : 0));
+    }
+
+    @Override
+    public boolean offer(Direction d) {
+        append(d, 1);
+        return true;
+    }
+
+    @Override
+    public Direction poll() {
+        if (remaining == 0) return null;
+        Direction d = DIRECTIONS[directions[run]];
+        if (--remaining == 0) {
+            // reuse the runs once the path is exhausted
+            clear();
+        } else if (++taken == lengths[run]) {
+            run++;
+            taken = 0;
+        }
+        return d;
+    }
+
+    @Override
+    public Direction peek() {
+        return (remaining == 0) ? null : DIRECTIONS[directions[run]];
+    }
+
+    // advances the cursor by at most 'steps' steps and returns the number of steps skipped
+    public int skip(int steps) {
+        int skipped = Math.min(Math.max(0, steps), remaining);
+        if (skipped == remaining) {
+            clear();
+            return skipped;
+        }
+        remaining -= skipped;
+        taken += skipped;
+        while (taken >= lengths[run]) {
+            taken -= lengths[run];
+            run++;
+        }
+        return skipped;
+    }
+
+    // returns the number of steps after the cursor
+    @Override
+    public int size() {
+        return remaining;
+    }
+
+    @Override
+    public void clear() {
+        runs = run = taken = remaining = 0;
+    }
+
+    // returns the number of runs after the cursor, including the current one
+    public int runCount() {
+        return runs - run;
+    }
+
+    // returns the direction of the i-th run after the cursor
+    public Direction runDirection(int i) {
+        return DIRECTIONS[directions[run + i]];
+    }
+
+    // returns the number of steps left in the i-th run after the cursor
+    public int runLength(int i) {
+        return lengths[run + i] - ((i == 0) ? taken : 0);
+    }
+
+    // mirrors every remaining step along the y-axis
+    public void mirrorX() {
+        for (int i = run; i < runs; i++)
+            directions[i] = (byte) DIRECTIONS[directions[i]].mirrorX().ordinal();
+    }
+
+    @Override
+    public Iterator<Direction> iterator() {
+        return new Iterator<Direction>() {
+            private int r = run, t = taken;
+
+            @Override
+            public boolean hasNext() {
+                return r < runs;
+            }
+
+            @Override
+            public Direction next() {
+                if (r >= runs) throw new NoSuchElementException();
+                Direction d = DIRECTIONS[directions[r]];
+                if (++t == lengths[r]) {
+                    r++;
+                    t = 0;
+                }
+                return d;
+            }
+        };
+    }
+}
@@ -0,0 +1,64 @@
+package kcf;
+
+import java.awt.*;
+
+/**
+ * class PointView represents a read-only view of a set of points.
+ * The coordinates are stored once in shared arrays and the
+ * x-axis of the view is flipped lazily when a coordinate is read,
+ * so the same snapshot can be seen in the local coordinate system
+ * of every robot without copying it.
+ */
+public class PointView {
+    private int[] xs = new int[0];
+    private int[] ys = new int[0];
+
+    // number of points in the view
+    private int size = 0;
+
+    // +1 if the x-axis of the view is aligned with the x-axis of xs, -1 otherwise
+    private int xSign = 1;
+
+    PointView() {}
+
+    /**
+     * Returns a view of the first size points in xs and ys. The
+     * arrays are not copied and must not be modified while the
+     * view is in use.
+     */
+    public static PointView of(int[] xs, int[] ys, int size) {
+        PointView view = new PointView();
+        view.bind(xs, ys, size, +1);
+        return view;
+    }
+
+    void bind(int[] xs, int[] ys, int size, int xSign) {
+        this.xs = xs;
+        this.ys = ys;
+        this.size = size;
+        this.xSign = xSign;
+    }
+
+    // makes this view show the points of 'view' with the x-axis multiplied by xSign
+    void bind(PointView view, int xSign) {
+        bind(view.xs, view.ys, view.size, view.xSign * xSign);
+    }
+
+    public int size() { return size; }
+
+    public int x(int i) { return xSign * xs[i]; }
+
+    public int y(int i) { return ys[i]; }
+
+    public Point get(int i) {
+        return new Point(x(i), y(i));
+    }
+
+    // copies the points of this view into a new array
+    public Point[] toArray() {
+        Point[] points = new Point[size];
+        for (int i = 0; i < size; i++)
+            points[i] = get(i);
+        return points;
+    }
+}
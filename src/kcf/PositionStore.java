@@ -0,0 +1,77 @@
+package kcf;
+
+import java.util.Arrays;
+
+/**
+ * class PositionStore stores the positions of robots in the
+ * global coordinate system as a structure of arrays. Robots
+ * bound to a store read and move through their index in it.
+ */
+public class PositionStore {
+    private int[] xs;
+    private int[] ys;
+
+    // number of positions in the store
+    private int size = 0;
+
+    /**
+     * @param capacity initial number of positions the store can hold
+     */
+    public PositionStore(int capacity) {
+        xs = new int[Math.max(1, capacity)];
+        ys = new int[Math.max(1, capacity)];
+    }
+
+    public int size() { return size; }
+
+    public int x(int i) { return xs[i]; }
+
+    public int y(int i) { return ys[i]; }
+
+    // adds the position (x, y) and returns its index
+    public int add(int x, int y) {
+        if (size == xs.length) {
+            xs = Arrays.copyOf(xs, size * 2);
+            ys = Arrays.copyOf(ys, size * 2);
+        }
+        xs[size] = x;
+        ys[size] = y;
+        return size++;
+    }
+
+    public void set(int i, int x, int y) {
+        xs[i] = x;
+        ys[i] = y;
+    }
+
+    // moves position i one step in direction d of the global coordinate system
+    public void move(int i, Direction d) {
+        switch (d) {
+            case UP: ys[i] += 1; break;
+            case DOWN: ys[i] -= 1; break;
+            case RIGHT: xs[i] += 1; break;
+            case LEFT: xs[i] -= 1; break;
+        }
+    }
+
+    // makes view show the positions in this store, the view sees later moves
+    void view(PointView view) {
+        view.bind(xs, ys, size, +1);
+    }
+
+    // moves position i 'steps' steps in direction d of the global coordinate system
+    public void move(int i, Direction d, int steps) {
+        switch (d) {
+            case UP: ys[i] += steps; break;
+            case DOWN: ys[i] -= steps; break;
+            case RIGHT: xs[i] += steps; break;
+            case LEFT: xs[i] -= steps; break;
+        }
+    }
+
+    // copies all positions to the start of xs and ys
+    public void copyTo(int[] xs, int[] ys) {
+        System.arraycopy(this.xs, 0, xs, 0, size);
+        System.arraycopy(this.ys, 0, ys, 0, size);
+    }
+}
@@ -1,9 +1,6 @@
 package kcf;
 
-import util.RandomUtil;
-
 import java.awt.*;
-import java.util.LinkedList;
 import java.util.Queue;
 
 /**
@@ -18,21 +15,25 @@ public class RandomRobot extends Robot {
 
     @Override
     public Queue<Direction> LCM(Point[] R, Point[] F) {
-        int dx = RandomUtil.uniform(-10, 10);
-        int dy = RandomUtil.uniform(-10, 10);
+        return randomPath();
+    }
+
+    @Override
+    public Path LCM(PointView R, PointView F) {
+        // R and F are not used, no need to copy them
+        return randomPath();
+    }
+
+    private Path randomPath() {
+        // steps in [-9, 9] along each axis, symmetric so the swarm doesn't drift
+        int dx = random().uniform(-9, 10);
+        int dy = random().uniform(-9, 10);
         return path(dx ,dy);
     }
 
-    private Queue<Direction> path(int dx, int dy) {
-        Queue<Direction> path = new LinkedList<>();
-        Direction d = (dx > 0) ? Direction.RIGHT : Direction.LEFT;
-        for (int i = 0; i < Math.abs(dx); i++) {
-            path.add(d);
-        }
-        d = (dy > 0) ? Direction.UP : Direction.DOWN;
-        for (int i = 0; i < Math.abs(dy); i++) {
-            path.add(d);
-        }
-        return path;
+    private Path path(int dx, int dy) {
+        return new Path()
+                .append((dx > 0) ? Direction.RIGHT : Direction.LEFT, Math.abs(dx))
+                .append((dy > 0) ? Direction.UP : Direction.DOWN, Math.abs(dy));
     }
 }
@@ -1,31 +1,80 @@
 package kcf;
 
+import util.RandomStream;
+
 import java.awt.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Queue;
 
 /**
  * abstract class Robot represents a robot on the grid.
  */
 public abstract class Robot {
-    protected Point position;
+    // store holding the position of this robot in global coordinate system
+    private PositionStore store;
+
+    // index of this robot in store
+    private int index;
+
+    // +1 if the local x-axis is aligned with the global x-axis, -1 otherwise
+    private int xSign = 1;
+
+    // random stream of this robot, derived from the seed of its simulation
+    private RandomStream random = RandomStream.unseeded();
 
     public Robot(Point position) {
-        this.position = new Point(position);
+        this.store = new PositionStore(1);
+        this.index = store.add(position.x, position.y);
     }
 
+    // position in local coordinate system
     public Point getPosition() {
-        return new Point(position);
+        return new Point(getX(), getY());
     }
 
+    public int getX() { return xSign * store.x(index); }
+
+    public int getY() { return store.y(index); }
+
+    // moves one step in direction d of the local coordinate system
     public void move(Direction d) {
-        switch (d) {
-            case UP: position.y += 1; break;
-            case DOWN: position.y -= 1; break;
-            case RIGHT: position.x += 1; break;
-            case LEFT: position.x -= 1; break;
-        }
+        store.move(index, (xSign < 0) ? d.mirrorX() : d);
     }
 
+    /**
+     * Moves the position of this robot to the end of store.
+     * @param store store to hold the position in global coordinate system
+     * @param xSign +1 if the local x-axis is aligned with the global x-axis, -1 otherwise
+     * @return index of this robot in store
+     */
+    int bind(PositionStore store, int xSign) {
+        int x = xSign * getX(), y = getY();
+        this.store = store;
+        this.xSign = xSign;
+        this.index = store.add(x, y);
+        return index;
+    }
+
+    /**
+     * Returns the random stream of this robot. A Simulation gives every robot
+     * its own stream derived from its seed, robots that draw all their random
+     * values from it behave the same for the same seed, also when they are
+     * computed in parallel.
+     */
+    protected RandomStream random() { return random; }
+
+    void setRandom(RandomStream random) { this.random = random; }
+
+    // changes the alignment of the local x-axis, the global position stays the same
+    void setXSign(int xSign) { this.xSign = xSign; }
+
+    // position in global coordinate system
+    int globalX() { return store.x(index); }
+
+    int globalY() { return store.y(index); }
+
     /**
      * Look-Compute-Move cycle. The parameters R and F
      * should be provided in the robots local coordinate
@@ -36,4 +85,33 @@ public abstract class Robot {
      * @return a path to destination in local coordinate system
      */
     public abstract Queue<Direction> LCM(Point[] R, Point[] F);
+
+    /**
+     * Look-Compute-Move cycle on read-only views of R and F in the
+     * robots local coordinate system. By default the views are copied
+     * into arrays and passed to LCM(Point[], Point[]) and the returned
+     * queue is converted to a Path, robots can override this to avoid
+     * allocating a Point per robot and fixed point and a node per step.
+     * @param R location of robots in local coordinate system
+     * @param F location of fixed points in local coordinate system
+     * @return a path to destination in local coordinate system
+     */
+    public Path LCM(PointView R, PointView F) {
+        return Path.of(LCM(R.toArray(), F.toArray()));
+    }
+
+    /**
+     * Writes the state the algorithm of this robot keeps between cycles
+     * to a checkpoint of the simulation. The position is saved by the
+     * simulation, robots without other state don't need to override this.
+     * @param out output to write the state to
+     */
+    public void saveState(DataOutput out) throws IOException {}
+
+    /**
+     * Reads back the state written by saveState when a simulation
+     * is restored from a checkpoint.
+     * @param in input to read the state from
+     */
+    public void restoreState(DataInput in) throws IOException {}
 }
@@ -1,20 +1,67 @@
 package kcf;
 
+import util.RandomStream;
+
 import java.awt.*;
-import java.util.LinkedList;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Queue;
 
 public class RobotInterface {
     private final Robot r;
-    private final boolean xAxisAlignment;
+    private boolean xAxisAlignment;
+
+    // views of the look snapshot in the local coordinate system of the robot
+    private final PointView localR = new PointView();
+    private final PointView localF = new PointView();
+
+    // reused to hold the path in global coordinate system
+    private final Path path = new Path();
 
     public RobotInterface(Robot r, boolean xAxisAlignment) {
         this.r = r;
         this.xAxisAlignment = xAxisAlignment;
+        bind(new PositionStore(1));
+    }
+
+    // moves the position of the robot to the end of store and returns its index
+    int bind(PositionStore store) {
+        return r.bind(store, (xAxisAlignment) ? +1 : -1);
+    }
+
+    public boolean isXAxisAligned() { return xAxisAlignment; }
+
+    // changes the alignment of the local x-axis, used when restoring a checkpoint
+    void setXAxisAlignment(boolean xAxisAlignment) {
+        this.xAxisAlignment = xAxisAlignment;
+        r.setXSign((xAxisAlignment) ? +1 : -1);
+    }
+
+    RandomStream random() { return r.random(); }
+
+    void setRandom(RandomStream random) { r.setRandom(random); }
+
+    void saveState(DataOutput out) throws IOException {
+        r.saveState(out);
+    }
+
+    void restoreState(DataInput in) throws IOException {
+        r.restoreState(in);
     }
 
     public Point getPosition() {
-        return inverse(r.getPosition());
+        return new Point(getX(), getY());
+    }
+
+    // x coordinate in global coordinate system, same as getPosition().x
+    public int getX() {
+        return r.globalX();
+    }
+
+    // y coordinate in global coordinate system, same as getPosition().y
+    public int getY() {
+        return r.globalY();
     }
 
     public void move(Direction d) {
@@ -32,31 +79,38 @@ public class RobotInterface {
             _F[i] = transform(F[i]);
         }
 
-        Queue<Direction> path = r.LCM(_R, _F);
-        Queue<Direction> _path = new LinkedList<>();
-        while (!path.isEmpty()) {
-            _path.offer(inverse(path.poll()));
-        }
-        return _path;
+        return inverse(r.LCM(_R, _F));
     }
 
-    private Point transform(Point p) {
-        return new Point(p.x * ((xAxisAlignment) ? +1 : -1), p.y);
+    /**
+     * Look-Compute-Move cycle on views of the look snapshot. The robot sees
+     * the snapshot through views in its local coordinate system, nothing is
+     * copied. The returned path is only valid until the next call of LCM.
+     * @param R location of robots in global coordinate system
+     * @param F location of fixed points in global coordinate system
+     * @return a path to destination in global coordinate system
+     */
+    public Path LCM(PointView R, PointView F) {
+        int xSign = (xAxisAlignment) ? +1 : -1;
+        localR.bind(R, xSign);
+        localF.bind(F, xSign);
+        return inverse(r.LCM(localR, localF));
     }
 
-    private Point inverse(Point p) {
-        return transform(p);
+    // converts a path in local coordinate system to global coordinate system
+    private Path inverse(Queue<Direction> localPath) {
+        if (xAxisAlignment) return Path.of(localPath);
+        path.set(Path.of(localPath));
+        path.mirrorX();
+        return path;
     }
 
-    private Direction transform(Direction d) {
-        if (!xAxisAlignment) {
-            if (d.equals(Direction.LEFT)) d = Direction.RIGHT;
-            if (d.equals(Direction.RIGHT)) d = Direction.LEFT;
-        }
-        return d;
+    private Point transform(Point p) {
+        return new Point(p.x * ((xAxisAlignment) ? +1 : -1), p.y);
     }
 
-    private Direction inverse(Direction d) {
-        return transform(d);
+    private Direction transform(Direction d) {
+        return (xAxisAlignment) ? d : d.mirrorX();
     }
+
 }
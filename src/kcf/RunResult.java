@@ -0,0 +1,33 @@
+package kcf;
+
+import java.awt.*;
+
+/**
+ * class RunResult represents the outcome of a headless
+ * run of a Simulation.
+ */
+public class RunResult {
+    // number of rounds started
+    public final int rounds;
+
+    // state the simulation stopped in
+    public final SimulationStates state;
+
+    // final position of robots in global coordinate system
+    public final Point[] positions;
+
+    // number of collisions detected during the run
+    public final int collisions;
+
+    public RunResult(int rounds, SimulationStates state, Point[] positions, int collisions) {
+        this.rounds = rounds;
+        this.state = state;
+        this.positions = positions;
+        this.collisions = collisions;
+    }
+
+    @Override
+    public String toString() {
+        return "RunResult{rounds=" + rounds + ", state=" + state + ", collisions=" + collisions + "}";
+    }
+}
@@ -0,0 +1,79 @@
+package kcf;
+
+import util.RandomStream;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * abstract class Scheduler decides when the robots of a Simulation
+ * are activated. There are 3 models:
+ *  * FSYNC: every robot executes every round, the rounds are synchronous
+ *  * SSYNC: the rounds are synchronous but only a random subset of the
+ *      robots is activated in each round
+ *  * ASYNC: every robot executes its own look-compute-move cycles at
+ *      random times, robots compute on stale snapshots and their moves
+ *      are interleaved
+ * A scheduler must only be used by a single Simulation.
+ */
+public abstract class Scheduler {
+    // number of robots in the simulation
+    int robots;
+
+    // random stream of the scheduler, set by the simulation before init
+    RandomStream random = RandomStream.unseeded();
+
+    Scheduler() {}
+
+    // every robot is activated in every round
+    public static Scheduler fsync() {
+        return new Scheduler() {
+            @Override
+            public String toString() {
+                return "FSYNC";
+            }
+        };
+    }
+
+    /**
+     * Every robot is activated in a round with the given probability,
+     * at least one robot is activated in every round.
+     * @param probability probability of activating a robot in a round
+     */
+    public static Scheduler ssync(double probability) {
+        return new SsyncScheduler(probability);
+    }
+
+    /**
+     * Robots activate independently, each look, each move step and the
+     * wait before the next look take a random time in [1, maxDelay].
+     * @param maxDelay maximum number of time units between two activations
+     */
+    public static Scheduler async(int maxDelay) {
+        return new AsyncScheduler(maxDelay);
+    }
+
+    // prepares the scheduler for a simulation with 'robots' robots
+    void init(Simulation s, int robots) {
+        this.robots = robots;
+    }
+
+    // writes the robots activated in the next round to active and returns their number
+    int activate(int[] active) {
+        for (int i = 0; i < robots; i++)
+            active[i] = i;
+        return robots;
+    }
+
+    // advances the simulation by one tick
+    void tick(Simulation s) {
+        s.advanceRound();
+    }
+
+    // writes the state kept between ticks to a checkpoint
+    void save(DataOutput out) throws IOException {}
+
+    // reads back the state written by save, the scheduler is already initialised
+    void restore(DataInput in) throws IOException {}
+}
@@ -1,22 +1,48 @@
 package kcf;
 
 import grid.Camera;
+import grid.DirtyRegions;
 import grid.Entity;
+import util.Metrics;
+import util.RandomStream;
 
 import java.awt.*;
-import java.util.HashSet;
-import java.util.Queue;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 
 /**
- * class Simulation represents a synchronous simulation.
- * The robots execute a look-compute-move cycle synchronously.
+ * class Simulation represents a simulation of robots executing
+ * look-compute-move cycles. By default the cycles are executed
+ * synchronously, a Scheduler can activate robots semi-synchronously
+ * or asynchronously instead.
  */
-public class Simulation implements Entity {
+public class Simulation implements Entity, DirtyRegions {
+
+    // first ints of a checkpoint, "KCFC" and the format version
+    private static final int CHECKPOINT_MAGIC = 0x4B434643;
+    private static final int CHECKPOINT_VERSION = 2;
+
+    // key of the scheduler's random stream, robot i has key i
+    private static final long SCHEDULER_STREAM = -1;
 
     // Robots in this simulation
     private final RobotInterface[] robotInterfaces;
 
-    // fixed points in the simulation
+    // position of robots in global coordinate system, robot i has index i
+    private final PositionStore positions;
+
+    // fixed points in the simulation, copies of the given ones so restore() can replace them
     private final Point[] fixedPoints;
 
     // number of rounds executed
@@ -25,6 +51,9 @@ public class Simulation implements Entity {
     // state of the simulation
     private SimulationStates state;
 
+    // state to go back to when a paused simulation is resumed
+    private SimulationStates resumeState;
+
     // during move phase moving to next point on path on every frame is
     // too fast so we move only after every 'moveAfterFrames' frames
     private final int moveAfterFrames;
@@ -32,16 +61,86 @@ public class Simulation implements Entity {
     // number of frames passed since last move
     private int framesSinceLastMove = 0;
 
-    // paths[i] is a queue of Directions representing the path robot[i]
-    // will take in the move phase
-    private final Queue<Direction>[] paths;
+    // paths[i] is the path robot[i] will take in the move phase
+    private final Path[] paths;
+
+    // position of robots and fixed points taken in the look phase
+    // in global coordinate system
+    private final int[] lookX, lookY, fixedX, fixedY;
+
+    // read-only views of the look snapshot shared by all robots
+    private final PointView R, F;
+
+    // view of the current positions, used by asynchronous schedulers
+    private final PointView liveR = new PointView();
+
+    // robots only see robots and fixed points within this distance, or everything if null
+    private VisibilityGrid visibleRobots, visibleFixed;
+
+    // points visible to robot i, created on its first look with a visibility radius
+    private VisibilityGrid.Visible[] visibleR, visibleF;
+
+    // decides which robots are activated and when
+    private Scheduler scheduler;
+
+    // seed the random streams of robots and the scheduler are derived from
+    private long seed;
 
-    // position of robots and fixed points in global coordinate system
-    private final Point[] R, F;
+    // robots activated in the current round are active[0..activeCount)
+    private final int[] active;
+    private int activeCount = 0;
 
     // should the simulation go to error state on collision?
     private final boolean errorOnCollision;
 
+    // number of robots on each occupied point, kept up to date in move()
+    private final OccupancyIndex occupancy;
+
+    // indices of the robots that moved in the last step
+    private final int[] moved;
+
+    // edges crossed by the robots that moved in the last step, an edge is
+    // identified by the sum of its end points and kept in the table of the
+    // direction it was crossed in, so swaps show up in the opposite table
+    private final int[] edgeX, edgeY;
+    private final boolean[] forward;
+    private final OccupancyIndex forwardEdges, backwardEdges;
+
+    // robots with steps left on their path in the current move phase
+    // are moving[0..movingCount), so a step never scans idle robots
+    private final int[] moving;
+    private int movingCount = 0;
+
+    // finds the collisions of a whole move phase for jumpMove()
+    private final SweptCollisionDetector sweptCollisions = new SweptCollisionDetector();
+
+    // receives the robots and step of every collision found by jumpMove()
+    private Consumer<Collision> collisionListener;
+
+    // records the positions and paths of every round, if set
+    private TraceRecorder recorder;
+
+    // number of collisions detected so far
+    private int collisions = 0;
+
+    // records phase latencies and round statistics, null if metrics are disabled
+    private SimulationMetrics metrics;
+
+    // should collisions be logged to System.out?
+    private boolean verbose = false;
+
+    // strategy used to run the compute phase of all robots
+    private ComputeExecutor computeExecutor = ComputeExecutor.SEQUENTIAL;
+
+    // should the compute phase verify that R and F were not modified?
+    private boolean verifySnapshot = false;
+
+    // snapshots published at the end of every tick for rendering
+    private final SnapshotBuffer snapshots;
+
+    // draws the snapshots, only used by the render thread
+    private final SnapshotRenderer renderer = new SnapshotRenderer();
+
     public Simulation(
             RobotInterface[] robotInterfaces,
             Point[] fixedPoints,
@@ -49,18 +148,49 @@ public class Simulation implements Entity {
             boolean errorOnCollision
     ) {
         this.robotInterfaces = robotInterfaces;
-        this.fixedPoints = fixedPoints;
+        this.fixedPoints = new Point[fixedPoints.length];
+        for (int i = 0; i < fixedPoints.length; i++)
+            this.fixedPoints[i] = new Point(fixedPoints[i]);
         this.moveAfterFrames = moveAfterFrames;
         this.errorOnCollision = errorOnCollision;
-        this.paths = (Queue<Direction>[]) new Queue[robotInterfaces.length];
+        this.paths = new Path[robotInterfaces.length];
+        for (int i = 0; i < paths.length; i++)
+            paths[i] = new Path();
+        this.active = new int[robotInterfaces.length];
+
+        this.occupancy = new OccupancyIndex(robotInterfaces.length);
+        this.moved = new int[robotInterfaces.length];
+        this.edgeX = new int[robotInterfaces.length];
+        this.edgeY = new int[robotInterfaces.length];
+        this.forward = new boolean[robotInterfaces.length];
+        this.forwardEdges = new OccupancyIndex(robotInterfaces.length);
+        this.backwardEdges = new OccupancyIndex(robotInterfaces.length);
+        this.moving = new int[robotInterfaces.length];
 
-        R = new Point[robotInterfaces.length];
-        F = new Point[fixedPoints.length];
+        this.positions = new PositionStore(robotInterfaces.length);
+        for (RobotInterface robotInterface : robotInterfaces)
+            robotInterface.bind(positions);
+
+        lookX = new int[robotInterfaces.length];
+        lookY = new int[robotInterfaces.length];
+        fixedX = new int[fixedPoints.length];
+        fixedY = new int[fixedPoints.length];
+        R = PointView.of(lookX, lookY, lookX.length);
+        F = PointView.of(fixedX, fixedY, fixedX.length);
+        for (int i = 0; i < fixedPoints.length; i++) {
+            fixedX[i] = fixedPoints[i].x;
+            fixedY[i] = fixedPoints[i].y;
+        }
+        snapshots = new SnapshotBuffer(robotInterfaces.length, fixedX.clone(), fixedY.clone());
+        this.scheduler = Scheduler.fsync();
+        setSeed(ThreadLocalRandom.current().nextLong());
 
         this.state = SimulationStates.READY;
 
         if (collision() && errorOnCollision)
             state = SimulationStates.ERROR;
+
+        snapshots.publish(positions, round, state);
     }
 
     // start the simulation
@@ -69,40 +199,245 @@ public class Simulation implements Entity {
             state = SimulationStates.CYCLE;
     }
 
+    // pauses a running simulation, updates do nothing until it is resumed
+    public synchronized void pause() {
+        switch (state) {
+            case CYCLE:
+            case LOOK:
+            case COMPUTE:
+            case MOVE:
+                resumeState = state;
+                state = SimulationStates.PAUSED;
+                break;
+            default:
+                break;
+        }
+    }
+
+    // resumes a paused simulation in the state it was paused in
+    public synchronized void resume() {
+        if (state == SimulationStates.PAUSED)
+            state = resumeState;
+    }
+
+    /**
+     * Writes the whole state of the simulation to out: round, state, positions
+     * and axis alignments of robots, fixed points, the look snapshot, paths,
+     * the scheduler, the random streams and the state of every robot's algorithm. The simulation
+     * must not be updated while the checkpoint is written, e.g. pause it or
+     * write the checkpoint from an event of the scene's event queue.
+     * @param out stream to write to, it is flushed but not closed
+     */
+    public synchronized void checkpoint(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        data.writeInt(CHECKPOINT_MAGIC);
+        data.writeInt(CHECKPOINT_VERSION);
+        data.writeInt(robotInterfaces.length);
+        data.writeInt(fixedPoints.length);
+        data.writeUTF(scheduler.toString());
+        data.writeLong(seed);
+
+        data.writeInt(round);
+        data.writeByte(state.ordinal());
+        data.writeByte((resumeState == null) ? -1 : resumeState.ordinal());
+        data.writeInt(framesSinceLastMove);
+        data.writeInt(collisions);
+
+        for (int i = 0; i < robotInterfaces.length; i++) {
+            data.writeInt(positions.x(i));
+            data.writeInt(positions.y(i));
+            data.writeBoolean(robotInterfaces[i].isXAxisAligned());
+            data.writeInt(lookX[i]);
+            data.writeInt(lookY[i]);
+            writeRandom(data, robotInterfaces[i].random());
+        }
+        for (Point p : fixedPoints) {
+            data.writeInt(p.x);
+            data.writeInt(p.y);
+        }
+        writeIndices(data, active, activeCount);
+        writeIndices(data, moving, movingCount);
+        for (Path path : paths) {
+            data.writeInt(path.runCount());
+            for (int r = 0; r < path.runCount(); r++) {
+                data.writeByte(path.runDirection(r).ordinal());
+                data.writeInt(path.runLength(r));
+            }
+        }
+        writeRandom(data, scheduler.random);
+        scheduler.save(data);
+
+        // robot states are written with their length so a robot can't read into the next one
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream robotData = new DataOutputStream(bytes);
+        for (RobotInterface robotInterface : robotInterfaces) {
+            bytes.reset();
+            robotInterface.saveState(robotData);
+            robotData.flush();
+            data.writeInt(bytes.size());
+            bytes.writeTo(data);
+        }
+        data.flush();
+    }
+
+    /**
+     * Restores a checkpoint written by checkpoint(). The simulation must have
+     * the same robot algorithms, number of fixed points and kind of scheduler
+     * as the one the checkpoint was taken of. If the checkpoint can't be read
+     * the simulation goes to error state. The Point array the simulation was
+     * created with is not changed.
+     * @param in stream to read from, it is buffered and may be read past
+     *           the end of the checkpoint, it is not closed
+     */
+    public synchronized void restore(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+        if (data.readInt() != CHECKPOINT_MAGIC) throw new IOException("not a checkpoint");
+        if (data.readInt() != CHECKPOINT_VERSION) throw new IOException("unsupported checkpoint version");
+        int robots = data.readInt(), fixed = data.readInt();
+        String scheduler = data.readUTF();
+        if (robots != robotInterfaces.length || fixed != fixedPoints.length)
+            throw new IOException("checkpoint has " + robots + " robots and " + fixed + " fixed points");
+        if (!scheduler.equals(this.scheduler.toString()))
+            throw new IOException("checkpoint was taken with scheduler " + scheduler);
+        long seed = data.readLong();
+
+        try {
+            this.seed = seed;
+            SimulationStates[] states = SimulationStates.values();
+            round = data.readInt();
+            state = states[data.readByte()];
+            int resume = data.readByte();
+            resumeState = (resume < 0) ? null : states[resume];
+            framesSinceLastMove = data.readInt();
+            collisions = data.readInt();
+
+            for (int i = 0; i < robots; i++) {
+                positions.set(i, data.readInt(), data.readInt());
+                robotInterfaces[i].setXAxisAlignment(data.readBoolean());
+                lookX[i] = data.readInt();
+                lookY[i] = data.readInt();
+                robotInterfaces[i].setRandom(readRandom(data));
+            }
+            for (Point p : fixedPoints)
+                p.setLocation(data.readInt(), data.readInt());
+            activeCount = readIndices(data, active);
+            movingCount = readIndices(data, moving);
+            Direction[] directions = Direction.values();
+            for (int i = 0; i < robots; i++) {
+                Path path = new Path();
+                for (int r = data.readInt(); r > 0; r--)
+                    path.append(directions[data.readByte()], data.readInt());
+                paths[i] = path;
+            }
+            this.scheduler.random = readRandom(data);
+            this.scheduler.restore(data);
+
+            byte[] bytes = new byte[0];
+            for (int i = 0; i < robots; i++) {
+                int length = data.readInt();
+                if (length < 0) throw new IOException("invalid state length of robot " + i);
+                if (bytes.length < length) bytes = new byte[length];
+                data.readFully(bytes, 0, length);
+                ByteArrayInputStream robotBytes = new ByteArrayInputStream(bytes, 0, length);
+                robotInterfaces[i].restoreState(new DataInputStream(robotBytes));
+                if (robotBytes.available() != 0) throw new IOException("robot " + i + " did not read its whole state");
+            }
+        } catch (IOException | RuntimeException e) {
+            state = SimulationStates.ERROR;
+            throw (e instanceof IOException) ? (IOException) e : new IOException("invalid checkpoint", e);
+        }
+
+        for (int i = 0; i < fixedPoints.length; i++) {
+            fixedX[i] = fixedPoints[i].x;
+            fixedY[i] = fixedPoints[i].y;
+        }
+        occupancy.clear();
+        for (int i = 0; i < robots; i++)
+            occupancy.add(positions.x(i), positions.y(i));
+        if (visibleRobots != null) {
+            visibleRobots.build(lookX, lookY, lookX.length);
+            visibleFixed.build(fixedX, fixedY, fixedX.length);
+        }
+        // the fixed points of the checkpoint may differ from the ones shown
+        snapshots.setFixed(fixedX, fixedY);
+        snapshots.publish(positions, round, state);
+    }
+
+    private static void writeRandom(DataOutputStream data, RandomStream random) throws IOException {
+        data.writeLong(random.getSeed());
+        data.writeLong(random.getGamma());
+    }
+
+    private static RandomStream readRandom(DataInputStream data) throws IOException {
+        return new RandomStream(data.readLong(), data.readLong());
+    }
+
+    private static void writeIndices(DataOutputStream data, int[] indices, int count) throws IOException {
+        data.writeInt(count);
+        for (int j = 0; j < count; j++)
+            data.writeInt(indices[j]);
+    }
+
+    private static int readIndices(DataInputStream data, int[] indices) throws IOException {
+        int count = data.readInt();
+        if (count < 0 || count > indices.length) throw new IOException("invalid number of robots: " + count);
+        for (int j = 0; j < count; j++) {
+            indices[j] = data.readInt();
+            if (indices[j] < 0 || indices[j] >= indices.length) throw new IOException("invalid robot: " + indices[j]);
+        }
+        return count;
+    }
+
     @Override
     public void update() {
+        // during move phase only advance once every 'moveAfterFrames' frames
+        if (state == SimulationStates.MOVE && framesSinceLastMove < moveAfterFrames) {
+            framesSinceLastMove++;
+            return;
+        }
+        framesSinceLastMove = 0;
+
+        advance();
+        snapshots.publish(positions, round, state);
+    }
+
+    /**
+     * Advances the simulation to its next state without any frame
+     * pacing. Used by update() and by HeadlessRunner.
+     */
+    void advance() {
+        scheduler.tick(this);
+    }
+
+    // advances the round based state machine used by FSYNC and SSYNC schedulers
+    void advanceRound() {
         switch (state) {
             case CYCLE: {
                 round++;
-                System.out.println("Round: " + round);
+                if (metrics != null) metrics.roundStarted();
+                activeCount = scheduler.activate(active);
                 state = SimulationStates.LOOK;
-                System.out.println("Look");
                 break;
             }
             case LOOK: {
+                long start = (metrics != null) ? System.nanoTime() : 0;
                 look();
-                if (isComplete()) {
-                    state = SimulationStates.DONE;
-                    System.out.println("done");
-                } else {
-                    state = SimulationStates.COMPUTE;
-                    System.out.println("compute");
-                }
+                if (metrics != null) SimulationMetrics.record(metrics.look, start);
+                state = isComplete() ? SimulationStates.DONE : SimulationStates.COMPUTE;
                 break;
             }
             case COMPUTE: {
-                compute();
-                state = SimulationStates.MOVE;
-                framesSinceLastMove = 0;
-                System.out.println("move");
+                long start = (metrics != null) ? System.nanoTime() : 0;
+                state = compute() ? SimulationStates.MOVE : SimulationStates.ERROR;
+                if (metrics != null) metrics.computed(start, activeCount);
+                if (recorder != null && state == SimulationStates.MOVE)
+                    recorder.record(round, lookX, lookY, lookX.length, fixedX, fixedY, paths);
                 break;
             }
             case MOVE: {
-                if (framesSinceLastMove < moveAfterFrames) framesSinceLastMove++;
-                else {
-                    framesSinceLastMove = 0;
-                    move();
-                }
+                long start = (metrics != null) ? System.nanoTime() : 0;
+                move();
+                if (metrics != null) SimulationMetrics.record(metrics.move, start);
                 break;
             }
             default:
@@ -110,65 +445,336 @@ public class Simulation implements Entity {
         }
     }
 
-    private void look() {
-        for (int i = 0; i < robotInterfaces.length; i++) {
-            R[i] = robotInterfaces[i].getPosition();
-        }
+    // the phase methods are package-private so they can be benchmarked in isolation
+
+    void look() {
+        positions.copyTo(lookX, lookY);
         for (int i = 0; i < fixedPoints.length; i++) {
-            F[i] = new Point(fixedPoints[i]);
+            fixedX[i] = fixedPoints[i].x;
+            fixedY[i] = fixedPoints[i].y;
+        }
+        if (visibleRobots != null) {
+            visibleRobots.build(lookX, lookY, lookX.length);
+            visibleFixed.build(fixedX, fixedY, fixedX.length);
         }
     }
 
-    private void compute() {
-        for (int i = 0; i < robotInterfaces.length; i++) {
-            paths[i] = robotInterfaces[i].LCM(R, F);
+    // returns false if the look snapshot was modified during the phase
+    boolean compute() {
+        int[][] snapshot = {lookX, lookY, fixedX, fixedY};
+        int[][] copy = verifySnapshot ? new int[][]{lookX.clone(), lookY.clone(), fixedX.clone(), fixedY.clone()} : null;
+
+        // R and F are shared by all robots and must only be read
+        VisibilityGrid robots = visibleRobots, fixed = visibleFixed;
+        computeExecutor.forEach(activeCount, j -> {
+            int i = active[j];
+            if (robots == null) {
+                paths[i] = robotInterfaces[i].LCM(R, F);
+            } else {
+                robots.query(lookX[i], lookY[i], visibleR(i));
+                fixed.query(lookX[i], lookY[i], visibleF(i));
+                paths[i] = robotInterfaces[i].LCM(visibleR[i].view(), visibleF[i].view());
+            }
+        });
+
+        movingCount = 0;
+        for (int j = 0; j < activeCount; j++) {
+            if (!paths[active[j]].isEmpty()) moving[movingCount++] = active[j];
         }
+
+        if (verifySnapshot && !Arrays.deepEquals(snapshot, copy)) {
+            if (verbose) System.out.println("Snapshot modified during compute");
+            return false;
+        }
+        return true;
     }
 
-    private void move() {
-        boolean complete = true;
-        for (int i = 0; i < robotInterfaces.length; i++) {
-            if (!paths[i].isEmpty()) {
-                robotInterfaces[i].move(paths[i].poll());
-                complete = false;
-            }
+    void move() {
+        int movedCount = 0, stillMoving = 0;
+        for (int j = 0; j < movingCount; j++) {
+            int i = moving[j];
+            step(i, movedCount++);
+            if (!paths[i].isEmpty()) moving[stillMoving++] = i;
         }
-        if (collision() && errorOnCollision)
+        movingCount = stillMoving;
+        if (collision(movedCount) && errorOnCollision)
             state = SimulationStates.ERROR;
-        else if (complete)
+        else if (movedCount == 0)
             state = SimulationStates.CYCLE;
     }
 
-    private boolean collision() {
-        boolean collision = false;
-        HashSet<Point> points = new HashSet<>();
-        StringBuilder sb = new StringBuilder("Collision at:");
-        for (RobotInterface robotInterface : robotInterfaces) {
-            Point p = robotInterface.getPosition();
-            if (!points.add(p)) {
-                sb.append(" (").append(p.x).append(", ").append(p.y).append(')');
-                collision = true;
+    /**
+     * Finishes the move phase at once. Final positions are computed from the
+     * runs of the paths and collisions are found analytically, the result is
+     * the same as calling move() until the phase ends. The robots and step
+     * of every collision are reported to the collision listener. Used by
+     * headless runs.
+     */
+    void jumpMove() {
+        long start = (metrics != null) ? System.nanoTime() : 0;
+        long[] events = sweptCollisions.detect(positions, paths, moving, movingCount, computeExecutor);
+
+        // with errorOnCollision the phase stops after the step of the first collision
+        int steps = Integer.MAX_VALUE, count = events.length;
+        if (errorOnCollision && count > 0) {
+            steps = SweptCollisionDetector.step(events[0]);
+            count = 0;
+            while (count < events.length && SweptCollisionDetector.step(events[count]) == steps) count++;
+        }
+
+        for (int j = 0; j < movingCount; j++) {
+            int i = moving[j];
+            Path path = paths[i];
+            occupancy.remove(positions.x(i), positions.y(i));
+            for (int left = steps; left > 0 && !path.isEmpty(); ) {
+                Direction d = path.peek();
+                int skipped = path.skip(Math.min(left, path.runLength(0)));
+                positions.move(i, d, skipped);
+                left -= skipped;
+            }
+            occupancy.add(positions.x(i), positions.y(i));
+        }
+        movingCount = 0;
+
+        collisions += count;
+        if ((verbose || collisionListener != null) && count > 0) {
+            for (Collision c : sweptCollisions.collisions(round, steps)) {
+                if (verbose) System.out.println("Collision: " + c);
+                if (collisionListener != null) collisionListener.accept(c);
+            }
+        }
+        state = (errorOnCollision && count > 0) ? SimulationStates.ERROR : SimulationStates.CYCLE;
+        if (metrics != null) SimulationMetrics.record(metrics.jumpMove, start);
+    }
+
+    // starts the next round of an asynchronous scheduler
+    void nextRound() {
+        round++;
+        if (metrics != null) metrics.roundStarted();
+        if (recorder != null) {
+            positions.copyTo(lookX, lookY);
+            recorder.record(round, lookX, lookY, lookX.length, fixedX, fixedY, paths);
+        }
+        if (isComplete()) state = SimulationStates.DONE;
+    }
+
+    // look and compute of robot i on the current positions, used by asynchronous schedulers
+    void lookCompute(int i) {
+        long start = (metrics != null) ? System.nanoTime() : 0;
+        positions.view(liveR);
+        if (visibleRobots == null) {
+            paths[i] = robotInterfaces[i].LCM(liveR, F);
+        } else {
+            // positions change between two activations, so there is no index to query
+            visibleRobots.scan(liveR, positions.x(i), positions.y(i), visibleR(i));
+            visibleFixed.scan(F, positions.x(i), positions.y(i), visibleF(i));
+            paths[i] = robotInterfaces[i].LCM(visibleR[i].view(), visibleF[i].view());
+        }
+        if (metrics != null) metrics.lookComputed(start);
+    }
+
+    private VisibilityGrid.Visible visibleR(int i) {
+        if (visibleR[i] == null) visibleR[i] = new VisibilityGrid.Visible();
+        return visibleR[i];
+    }
+
+    private VisibilityGrid.Visible visibleF(int i) {
+        if (visibleF[i] == null) visibleF[i] = new VisibilityGrid.Visible();
+        return visibleF[i];
+    }
+
+    // moves robot i one step on its path, returns false if its path is empty
+    boolean moveStep(int i) {
+        if (paths[i].isEmpty()) return false;
+        step(i, 0);
+        if (collision(1) && errorOnCollision)
+            state = SimulationStates.ERROR;
+        return true;
+    }
+
+    // moves robot i one step along its path and records it as moved[j]
+    private void step(int i, int j) {
+        int x = positions.x(i), y = positions.y(i);
+        occupancy.remove(x, y);
+        positions.move(i, paths[i].poll());
+        occupancy.add(positions.x(i), positions.y(i));
+        moved[j] = i;
+        edgeX[j] = x + positions.x(i);
+        edgeY[j] = y + positions.y(i);
+        forward[j] = positions.x(i) > x || positions.y(i) > y;
+        (forward[j] ? forwardEdges : backwardEdges).add(edgeX[j], edgeY[j]);
+    }
+
+    // checks all robots for collisions and rebuilds the occupancy index
+    boolean collision() {
+        occupancy.clear();
+        StringBuilder sb = verbose ? new StringBuilder("Collision at:") : null;
+        int before = collisions;
+        for (int i = 0; i < positions.size(); i++) {
+            if (occupancy.add(positions.x(i), positions.y(i)) > 1) {
+                if (sb != null) appendPoint(sb, i);
+                collisions++;
+            }
+        }
+        if (collisions > before && sb != null)
+            System.out.println(sb);
+        return collisions > before;
+    }
+
+    // checks only the robots that moved in the last step for collisions,
+    // a robot collides if it shares its point or swapped it with another robot
+    private boolean collision(int movedCount) {
+        StringBuilder sb = null;
+        int before = collisions;
+        for (int j = 0; j < movedCount; j++) {
+            int i = moved[j];
+            if (occupancy.count(positions.x(i), positions.y(i)) > 1
+                    || (forward[j] ? backwardEdges : forwardEdges).count(edgeX[j], edgeY[j]) > 0) {
+                if (verbose) {
+                    if (sb == null) sb = new StringBuilder("Collision at:");
+                    appendPoint(sb, i);
+                }
+                collisions++;
             }
         }
-        if (collision)
+        for (int j = 0; j < movedCount; j++)
+            (forward[j] ? forwardEdges : backwardEdges).remove(edgeX[j], edgeY[j]);
+        if (sb != null)
             System.out.println(sb);
-        return collision;
+        return collisions > before;
+    }
+
+    private void appendPoint(StringBuilder sb, int i) {
+        sb.append(" (").append(positions.x(i)).append(", ").append(positions.y(i)).append(')');
     }
 
     public boolean isComplete() {
         return false;
     }
 
-    @Override
-    public void render(Graphics2D g2D, Camera c) {
-        g2D.setColor(Color.GREEN);
-        for (Point p : fixedPoints) {
-            g2D.fillRect(c.gridToScreenX(p.x), c.gridToScreenY(p.y), c.tileSize(), c.tileSize());
+    public int getRound() { return round; }
+
+    public SimulationStates getState() { return state; }
+
+    // returns the number of collisions detected so far
+    public int getCollisions() { return collisions; }
+
+    // sets the scheduler of the simulation, must be called before the simulation is started
+    public void setScheduler(Scheduler scheduler) {
+        if (state != null && state != SimulationStates.READY && state != SimulationStates.ERROR)
+            throw new IllegalStateException("scheduler must be set before the simulation is started");
+        scheduler.random = new RandomStream(seed).derive(SCHEDULER_STREAM);
+        scheduler.init(this, robotInterfaces.length);
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Seeds the random streams of the robots and the scheduler, must be called
+     * before the simulation is started. Robot i gets the stream derived with
+     * key i, so a run only depends on the seed and not on the order in which
+     * robots are computed. A simulation is seeded randomly when it is created.
+     * @param seed seed of the run
+     */
+    public void setSeed(long seed) {
+        if (state != null && state != SimulationStates.READY && state != SimulationStates.ERROR)
+            throw new IllegalStateException("seed must be set before the simulation is started");
+        this.seed = seed;
+        RandomStream root = new RandomStream(seed);
+        for (int i = 0; i < robotInterfaces.length; i++)
+            robotInterfaces[i].setRandom(root.derive(i));
+        setScheduler(scheduler);
+    }
+
+    public long getSeed() { return seed; }
+
+    public Scheduler getScheduler() { return scheduler; }
+
+    // sets the listener that receives every collision found by a headless jump over a move phase
+    public void setCollisionListener(Consumer<Collision> collisionListener) {
+        this.collisionListener = collisionListener;
+    }
+
+    /**
+     * Limits what robots see in the look phase to the robots and fixed points
+     * within a Euclidean distance of their position, the robot itself included.
+     * The look phase indexes the snapshot in a uniform grid, so robots get their
+     * neighbours without scanning all robots. Takes effect in the next look phase.
+     * @param radius visibility radius, a negative radius makes everything visible
+     */
+    public void setVisibilityRadius(int radius) {
+        if (radius < 0) {
+            visibleRobots = visibleFixed = null;
+            return;
         }
-        g2D.setColor(Color.RED);
-        for (RobotInterface robotInterface : robotInterfaces) {
-            Point p = robotInterface.getPosition();
-            g2D.fillOval(c.gridToScreenX(p.x), c.gridToScreenY(p.y), c.tileSize(), c.tileSize());
+        visibleRobots = new VisibilityGrid(radius);
+        visibleFixed = new VisibilityGrid(radius);
+        if (visibleR == null) {
+            visibleR = new VisibilityGrid.Visible[robotInterfaces.length];
+            visibleF = new VisibilityGrid.Visible[robotInterfaces.length];
         }
     }
+
+    // returns the visibility radius, negative if everything is visible
+    public int getVisibilityRadius() {
+        return (visibleRobots == null) ? -1 : visibleRobots.radius();
+    }
+
+    /**
+     * Records every round to a trace. Synchronous rounds are recorded after the
+     * compute phase with the look snapshot and the computed paths, asynchronous
+     * rounds when they start with the current positions and remaining paths.
+     * The recorder is not closed by the simulation.
+     * @param recorder recorder to write rounds to, null to stop recording
+     */
+    public void setRecorder(TraceRecorder recorder) { this.recorder = recorder; }
+
+    // sets the strategy used to run the compute phase
+    public void setComputeExecutor(ComputeExecutor computeExecutor) {
+        this.computeExecutor = computeExecutor;
+    }
+
+    // enables or disables the check that robots treat R and F as read-only
+    public void setVerifySnapshot(boolean verifySnapshot) { this.verifySnapshot = verifySnapshot; }
+
+    // enables or disables logging of collisions
+    public void setVerbose(boolean verbose) { this.verbose = verbose; }
+
+    /**
+     * Records phase latencies, compute throughput, allocations per round
+     * and collisions into the given registry. Without metrics nothing is
+     * measured.
+     * @param metrics registry to record into, null to disable metrics
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = (metrics == null) ? null : new SimulationMetrics(metrics, this);
+    }
+
+    // returns the current position of every robot in global coordinate system
+    public Point[] getPositions() {
+        Point[] points = new Point[positions.size()];
+        for (int i = 0; i < points.length; i++)
+            points[i] = new Point(positions.x(i), positions.y(i));
+        return points;
+    }
+
+    /**
+     * Returns the snapshot published at the end of the last tick. The
+     * snapshot must not be used after the next call of this method, it
+     * is meant to be read by a single render thread.
+     */
+    public SimulationSnapshot getSnapshot() {
+        return snapshots.read();
+    }
+
+    // renders the last published snapshot, never reads live positions
+    @Override
+    public void render(Graphics2D g2D, Camera c) {
+        renderer.render(g2D, c, snapshots::read);
+    }
+
+    // the tiles robots left or entered since the last render
+    @Override
+    public boolean dirtyRegions(Camera c, List<Rectangle> dirty) {
+        return renderer.dirtyRegions(getSnapshot(), c, dirty);
+    }
 }
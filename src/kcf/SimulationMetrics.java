@@ -0,0 +1,86 @@
+package kcf;
+
+import util.Histogram;
+import util.Metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * class SimulationMetrics records the metrics of a Simulation into a
+ * Metrics registry. Phase latencies are in nanoseconds. Allocations are
+ * those of the thread running the simulation, work a ComputeExecutor
+ * hands to other threads is not included.
+ */
+class SimulationMetrics {
+    final Histogram look, compute, move, jumpMove, lookCompute;
+    private final Histogram roundAllocations;
+    private final LongAdder rounds, computedRobots;
+
+    // time spent computing, only reported as robots per second
+    private final LongAdder computeNanos = new LongAdder();
+
+    // null if the JVM can't measure allocations per thread
+    private final com.sun.management.ThreadMXBean threads;
+    private long roundStartBytes = -1;
+
+    SimulationMetrics(Metrics metrics, Simulation s) {
+        look = metrics.histogram("simulation.look.ns");
+        compute = metrics.histogram("simulation.compute.ns");
+        move = metrics.histogram("simulation.move.ns");
+        jumpMove = metrics.histogram("simulation.jumpMove.ns");
+        lookCompute = metrics.histogram("simulation.lookCompute.ns");
+        roundAllocations = metrics.histogram("simulation.round.allocatedBytes");
+        rounds = metrics.counter("simulation.rounds");
+        computedRobots = metrics.counter("simulation.computedRobots");
+        metrics.gauge("simulation.collisions", s::getCollisions);
+        metrics.gauge("simulation.compute.robotsPerSecond", () -> {
+            long nanos = computeNanos.sum();
+            return (nanos == 0) ? 0 : computedRobots.sum() * 1e9 / nanos;
+        });
+        threads = allocationCounter();
+    }
+
+    // records the time since start in h and returns the current time
+    static long record(Histogram h, long start) {
+        long now = System.nanoTime();
+        h.record(now - start);
+        return now;
+    }
+
+    // records a compute phase of the given number of robots
+    void computed(long start, int robots) {
+        long nanos = record(compute, start) - start;
+        computeNanos.add(nanos);
+        computedRobots.add(robots);
+    }
+
+    // records the look and compute of a single robot by an asynchronous scheduler
+    void lookComputed(long start) {
+        long nanos = record(lookCompute, start) - start;
+        computeNanos.add(nanos);
+        computedRobots.increment();
+    }
+
+    // called when a round starts, records the bytes allocated during the previous round
+    void roundStarted() {
+        rounds.increment();
+        if (threads == null) return;
+        long bytes = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        if (roundStartBytes >= 0 && bytes >= 0) roundAllocations.record(bytes - roundStartBytes);
+        roundStartBytes = bytes;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (!(bean instanceof com.sun.management.ThreadMXBean)) return null;
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (!threads.isThreadAllocatedMemorySupported()) return null;
+            threads.setThreadAllocatedMemoryEnabled(true);
+            return threads;
+        } catch (LinkageError | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+}
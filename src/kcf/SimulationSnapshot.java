@@ -0,0 +1,55 @@
+package kcf;
+
+/**
+ * class SimulationSnapshot represents the positions of robots and
+ * fixed points at the end of a tick of a Simulation. Snapshots are
+ * recycled by a triple buffer, a snapshot handed to the reader is
+ * never written to while the reader holds it.
+ */
+public class SimulationSnapshot {
+    // position of robots in global coordinate system,
+    // package-private so renderers can read them in bulk
+    final int[] robotX, robotY;
+
+    // position of fixed points in global coordinate system, the arrays
+    // are never written to and are shared by the snapshots of a buffer
+    int[] fixedX, fixedY;
+
+    private int round;
+    private SimulationStates state;
+
+    // increases with every snapshot published
+    long sequence = -1;
+
+    SimulationSnapshot(int robots, int[] fixedX, int[] fixedY) {
+        this.robotX = new int[robots];
+        this.robotY = new int[robots];
+        this.fixedX = fixedX;
+        this.fixedY = fixedY;
+    }
+
+    // copies the current state of the simulation into this snapshot
+    void capture(PositionStore positions, int[] fixedX, int[] fixedY, int round, SimulationStates state) {
+        positions.copyTo(robotX, robotY);
+        this.fixedX = fixedX;
+        this.fixedY = fixedY;
+        this.round = round;
+        this.state = state;
+    }
+
+    public int robotCount() { return robotX.length; }
+
+    public int robotX(int i) { return robotX[i]; }
+
+    public int robotY(int i) { return robotY[i]; }
+
+    public int fixedCount() { return fixedX.length; }
+
+    public int fixedX(int i) { return fixedX[i]; }
+
+    public int fixedY(int i) { return fixedY[i]; }
+
+    public int round() { return round; }
+
+    public SimulationStates state() { return state; }
+}
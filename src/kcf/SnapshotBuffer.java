@@ -0,0 +1,52 @@
+package kcf;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * class SnapshotBuffer is a triple buffer of SimulationSnapshots
+ * between one writer (the simulation thread) and one reader (the
+ * render thread). Neither side ever blocks or waits on the other.
+ */
+class SnapshotBuffer {
+    // snapshot owned by the writer
+    private SimulationSnapshot write;
+
+    // last published snapshot or the one last released by the reader
+    private final AtomicReference<SimulationSnapshot> middle;
+
+    // snapshot owned by the reader
+    private SimulationSnapshot read;
+
+    private long sequence = 0;
+
+    // fixed points captured by the next snapshots, owned by the writer
+    private int[] fixedX, fixedY;
+
+    SnapshotBuffer(int robots, int[] fixedX, int[] fixedY) {
+        this.fixedX = fixedX;
+        this.fixedY = fixedY;
+        write = new SimulationSnapshot(robots, fixedX, fixedY);
+        middle = new AtomicReference<>(new SimulationSnapshot(robots, fixedX, fixedY));
+        read = new SimulationSnapshot(robots, fixedX, fixedY);
+    }
+
+    // called by the writer, the fixed points of the next snapshots are copies of the given ones
+    void setFixed(int[] fixedX, int[] fixedY) {
+        this.fixedX = fixedX.clone();
+        this.fixedY = fixedY.clone();
+    }
+
+    // called by the writer, publishes the state of the simulation
+    void publish(PositionStore positions, int round, SimulationStates state) {
+        write.capture(positions, fixedX, fixedY, round, state);
+        write.sequence = sequence++;
+        write = middle.getAndSet(write);
+    }
+
+    // called by the reader, returns the latest published snapshot
+    SimulationSnapshot read() {
+        if (middle.get().sequence > read.sequence)
+            read = middle.getAndSet(read);
+        return read;
+    }
+}
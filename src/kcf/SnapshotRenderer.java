@@ -0,0 +1,163 @@
+package kcf;
+
+import grid.Camera;
+import grid.RasterLayer;
+
+import java.awt.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * class SnapshotRenderer draws the snapshots of a simulation through a
+ * RasterLayer. It remembers the positions it drew last, so while the
+ * camera does not move a new snapshot only redraws the tiles robots left
+ * or entered, and it can report those tiles as dirty regions. It is
+ * meant to be used by one render thread.
+ */
+class SnapshotRenderer {
+    // with more moved robots than this the whole layer is drawn again
+    private static final int MAX_CHANGED = 4096;
+
+    private static final Color FIXED = Color.GREEN, ROBOT = Color.RED;
+
+    private final RasterLayer layer = new RasterLayer();
+
+    // robot positions of the frame in the layer and the snapshot they are from
+    private int[] lastX, lastY;
+    private long lastSequence = -1;
+
+    // robots and fixed points per grid point of the frame in the layer,
+    // robotTiles is dropped while too many robots move and rebuilt afterwards
+    private OccupancyIndex robotTiles, fixedTiles;
+
+    // fixed points fixedTiles was built from, a snapshot with other arrays has other fixed points
+    private int[] tilesFixedX;
+
+    // grid points to redraw, deduplicated by dirtySet
+    private final OccupancyIndex dirtySet = new OccupancyIndex(64);
+    private int[] dirtyX = new int[64], dirtyY = new int[64];
+    private int dirtyCount = 0;
+    private int[] screenX = new int[0], screenY = new int[0];
+    private boolean full = true;
+
+    // snapshot prepared by dirtyRegions() for the next render()
+    private SimulationSnapshot pending;
+
+    /**
+     * Prepares the next frame from the snapshot and adds the canvas
+     * regions it changes, see grid.DirtyRegions.
+     * @return false if the whole layer is drawn again
+     */
+    boolean dirtyRegions(SimulationSnapshot s, Camera c, List<Rectangle> dirty) {
+        prepare(s, c);
+        pending = s;
+        if (full) return false;
+        Camera.View v = c.view();
+        if (screenX.length < dirtyCount) {
+            screenX = new int[dirtyX.length];
+            screenY = new int[dirtyX.length];
+        }
+        v.toScreen(dirtyX, dirtyY, screenX, screenY, dirtyCount);
+        for (int k = 0; k < dirtyCount; k++) {
+            if (v.isVisible(dirtyX[k], dirtyY[k]))
+                dirty.add(new Rectangle(screenX[k], screenY[k], v.tileSize, v.tileSize));
+        }
+        return true;
+    }
+
+    /**
+     * Draws the snapshot prepared by dirtyRegions(), or the one given by
+     * snapshot if there is none.
+     */
+    void render(Graphics2D g2D, Camera c, Supplier<SimulationSnapshot> snapshot) {
+        SimulationSnapshot s = pending;
+        pending = null;
+        if (s == null) {
+            s = snapshot.get();
+            prepare(s, c);
+        }
+        if (full) {
+            layer.begin(c);
+            layer.draw(s.fixedX, s.fixedY, s.fixedCount(), RasterLayer.Shape.SQUARE, FIXED);
+            layer.draw(s.robotX, s.robotY, s.robotCount(), RasterLayer.Shape.OVAL, ROBOT);
+        } else {
+            for (int k = 0; k < dirtyCount; k++)
+                layer.clearTile(dirtyX[k], dirtyY[k]);
+            for (int k = 0; k < dirtyCount; k++) {
+                int x = dirtyX[k], y = dirtyY[k];
+                if (fixedTiles.count(x, y) > 0) layer.drawTile(x, y, RasterLayer.Shape.SQUARE, FIXED);
+                // colliding robots are blended over each other, as in a full draw
+                for (int r = robotTiles.count(x, y); r > 0; r--)
+                    layer.drawTile(x, y, RasterLayer.Shape.OVAL, ROBOT);
+            }
+        }
+        dirtyCount = 0;
+        layer.end(g2D);
+    }
+
+    // finds the grid points whose robots changed since the last frame
+    private void prepare(SimulationSnapshot s, Camera c) {
+        int n = s.robotCount();
+        full = !layer.isCurrent(c);
+        dirtyCount = 0;
+        dirtySet.clear();
+        if (fixedTiles == null || tilesFixedX != s.fixedX) {
+            fixedTiles = new OccupancyIndex(s.fixedCount());
+            for (int i = 0; i < s.fixedCount(); i++)
+                fixedTiles.add(s.fixedX(i), s.fixedY(i));
+            tilesFixedX = s.fixedX;
+            full = true;
+        }
+        if (lastX == null || lastX.length != n) {
+            lastX = s.robotX.clone();
+            lastY = s.robotY.clone();
+            lastSequence = s.sequence;
+            robotTiles = null;
+            full = true;
+            return;
+        }
+        if (s.sequence == lastSequence) return;
+        lastSequence = s.sequence;
+
+        int changed = 0;
+        for (int i = 0; i < n && changed <= MAX_CHANGED; i++) {
+            if (s.robotX[i] != lastX[i] || s.robotY[i] != lastY[i]) changed++;
+        }
+        if (changed > MAX_CHANGED) {
+            System.arraycopy(s.robotX, 0, lastX, 0, n);
+            System.arraycopy(s.robotY, 0, lastY, 0, n);
+            robotTiles = null;
+            full = true;
+            return;
+        }
+
+        boolean rebuilt = robotTiles == null;
+        if (rebuilt) {
+            robotTiles = new OccupancyIndex(n);
+            for (int i = 0; i < n; i++)
+                robotTiles.add(s.robotX[i], s.robotY[i]);
+        }
+        for (int i = 0; i < n && changed > 0; i++) {
+            int x = s.robotX[i], y = s.robotY[i];
+            if (x == lastX[i] && y == lastY[i]) continue;
+            changed--;
+            if (!rebuilt) robotTiles.move(lastX[i], lastY[i], x, y);
+            markDirty(lastX[i], lastY[i]);
+            markDirty(x, y);
+            lastX[i] = x;
+            lastY[i] = y;
+        }
+    }
+
+    private void markDirty(int x, int y) {
+        if (dirtySet.add(x, y) > 1) return;
+        if (dirtyCount == dirtyX.length) {
+            dirtyX = Arrays.copyOf(dirtyX, dirtyCount * 2);
+            dirtyY = Arrays.copyOf(dirtyY, dirtyCount * 2);
+        }
+        dirtyX[dirtyCount] = x;
+        dirtyY[dirtyCount] = y;
+        dirtyCount++;
+    }
+}
@@ -0,0 +1,40 @@
+package kcf;
+
+/**
+ * class SsyncScheduler activates a random subset of the robots
+ * in every synchronous round. The gaps between activated robots
+ * are drawn from a geometric distribution, so selecting k robots
+ * takes O(k) time.
+ */
+class SsyncScheduler extends Scheduler {
+    private final double probability;
+
+    SsyncScheduler(double probability) {
+        if (!(probability > 0 && probability <= 1))
+            throw new IllegalArgumentException("probability must be in (0, 1]: " + probability);
+        this.probability = probability;
+    }
+
+    @Override
+    int activate(int[] active) {
+        if (probability == 1 || robots == 0) return super.activate(active);
+
+        int count = 0;
+        double logQ = Math.log(1 - probability);
+        for (long i = skip(logQ); i < robots; i += 1 + skip(logQ))
+            active[count++] = (int) i;
+        if (count == 0)
+            active[count++] = random.uniform(0, robots);
+        return count;
+    }
+
+    // number of robots skipped before the next activated one
+    private long skip(double logQ) {
+        return (long) (Math.log(1 - random.nextDouble()) / logQ);
+    }
+
+    @Override
+    public String toString() {
+        return "SSYNC(" + probability + ")";
+    }
+}
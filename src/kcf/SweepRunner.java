@@ -0,0 +1,162 @@
+package kcf;
+
+import util.RandomStream;
+
+import java.awt.*;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Constructor;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * class SweepRunner runs every configuration of a SweepSpec as an
+ * independent headless Simulation. Runs are spread over a bounded
+ * work-stealing pool with one worker per core, every simulation computes
+ * sequentially on its worker so cores are never oversubscribed. A CSV
+ * row is written and flushed as soon as a run finishes.
+ */
+public class SweepRunner {
+    static final String HEADER = "robots,fixed,scheduler,errorOnCollision,seed,rounds,state,collisions,millis,error";
+
+    private SweepRunner() {}
+
+    /**
+     * Usage: SweepRunner spec.properties [results.csv] [parallelism]
+     * Results are written to standard output if no file is given.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("usage: SweepRunner spec.properties [results.csv] [parallelism]");
+            System.exit(2);
+        }
+        SweepSpec spec;
+        try (Reader in = new FileReader(args[0])) {
+            spec = SweepSpec.load(in);
+        }
+        int parallelism = (args.length > 2) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        try (Writer csv = (args.length > 1) ? new FileWriter(args[1]) : new OutputStreamWriter(System.out)) {
+            run(spec, csv, parallelism);
+        }
+    }
+
+    /**
+     * Runs all configurations of spec and writes a CSV row per run in the
+     * order the runs finish.
+     * @param spec sweep to run
+     * @param csv writer the header and the rows are written to, it is not closed
+     * @param parallelism maximum number of simulations running at once
+     * @return number of runs that failed with an exception
+     */
+    public static int run(SweepSpec spec, Writer csv, int parallelism) throws IOException, InterruptedException {
+        Constructor<? extends Robot> robot = robotConstructor(spec.robot);
+        List<SweepSpec.Config> configs = spec.configs();
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+        try {
+            CompletionService<Row> runs = new ExecutorCompletionService<>(pool);
+            for (SweepSpec.Config config : configs)
+                runs.submit(() -> run(spec, robot, config));
+
+            csv.write(HEADER);
+            csv.write('\n');
+            csv.flush();
+            int failed = 0;
+            for (int i = 0; i < configs.size(); i++) {
+                Row row;
+                try {
+                    row = runs.take().get();
+                } catch (ExecutionException e) {
+                    // run() reports its own failures, this is a bug in the runner itself
+                    throw new IllegalStateException("sweep run failed", e.getCause());
+                }
+                if (row.failed) failed++;
+                csv.write(row.csv);
+                csv.write('\n');
+                csv.flush();
+            }
+            return failed;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // runs a single configuration and returns its CSV row
+    static Row run(SweepSpec spec, Constructor<? extends Robot> robot, SweepSpec.Config c) {
+        String prefix = c.robots + "," + c.fixed + "," + c.scheduler + "," + c.errorOnCollision + "," + c.seed + ",";
+        long start = System.nanoTime();
+        try {
+            Simulation s = simulation(spec, robot, c);
+            RunResult r = HeadlessRunner.run(s, spec.rounds);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            return new Row(prefix + r.rounds + "," + r.state + "," + r.collisions + "," + millis + ",", false);
+        } catch (Exception e) {
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            return new Row(prefix + ",FAILED,," + millis + "," + quote(e.toString()), true);
+        }
+    }
+
+    /**
+     * Creates the simulation of a configuration. Robots are placed on distinct
+     * random points of a square holding them at the spec's density, the
+     * placement and the simulation are seeded from the configuration's seed.
+     */
+    static Simulation simulation(SweepSpec spec, Constructor<? extends Robot> robot, SweepSpec.Config c)
+            throws ReflectiveOperationException {
+        RandomStream random = new RandomStream(c.seed);
+        RandomStream placement = random.derive(0), fixedPlacement = random.derive(1);
+        int side = (int) Math.ceil(Math.sqrt(c.robots / spec.density));
+
+        OccupancyIndex occupied = new OccupancyIndex(c.robots);
+        RobotInterface[] robots = new RobotInterface[c.robots];
+        for (int i = 0; i < robots.length; i++) {
+            int x, y;
+            do {
+                x = placement.uniform(0, side) - side / 2;
+                y = placement.uniform(0, side) - side / 2;
+            } while (occupied.count(x, y) > 0);
+            occupied.add(x, y);
+            boolean aligned = placement.nextDouble() < 0.5;
+            // robots are created in their local coordinate system
+            robots[i] = new RobotInterface(robot.newInstance(new Point(aligned ? x : -x, y)), aligned);
+        }
+        Point[] fixed = new Point[c.fixed];
+        for (int i = 0; i < fixed.length; i++)
+            fixed[i] = new Point(fixedPlacement.uniform(0, side) - side / 2, fixedPlacement.uniform(0, side) - side / 2);
+
+        Simulation s = new Simulation(robots, fixed, 0, c.errorOnCollision);
+        s.setVerbose(false);
+        s.setScheduler(SweepSpec.scheduler(c.scheduler));
+        s.setSeed(random.derive(2).nextLong());
+        return s;
+    }
+
+    static Constructor<? extends Robot> robotConstructor(String className) {
+        try {
+            return Class.forName(className).asSubclass(Robot.class).getConstructor(Point.class);
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("robot must be a Robot with a public (Point) constructor: " + className, e);
+        }
+    }
+
+    private static String quote(String s) {
+        return '"' + s.replace("\"", "\"\"").replace('\n', ' ') + '"';
+    }
+
+    // CSV row of a finished run
+    static final class Row {
+        final String csv;
+        final boolean failed;
+
+        Row(String csv, boolean failed) {
+            this.csv = csv;
+            this.failed = failed;
+        }
+    }
+}
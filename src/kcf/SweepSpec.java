@@ -0,0 +1,151 @@
+package kcf;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * class SweepSpec represents a parameter sweep, every combination of
+ * the listed values is one headless run. The spec is read from a
+ * properties file, values are separated by commas and integers can
+ * be given as inclusive ranges:
+ * <pre>
+ * robot = kcf.RandomRobot
+ * robots = 20, 100, 1000
+ * fixed = 10
+ * seeds = 1..8
+ * errorOnCollision = false, true
+ * scheduler = fsync, ssync:0.5, async:4
+ * rounds = 100
+ * density = 0.25
+ * </pre>
+ * The robot class needs a public constructor taking its Point.
+ */
+public class SweepSpec {
+    // class name of the robot algorithm
+    final String robot;
+
+    // values of the swept parameters
+    final int[] robots, fixed;
+    final long[] seeds;
+    final boolean[] errorOnCollision;
+    final String[] schedulers;
+
+    // maximum number of rounds of a run
+    final int rounds;
+
+    // robots per grid point of the square robots are placed on
+    final double density;
+
+    private SweepSpec(Properties p) {
+        robot = p.getProperty("robot", RandomRobot.class.getName()).trim();
+        robots = ints(p.getProperty("robots", "20"));
+        for (int r : robots) {
+            // a run without robots has nothing to measure
+            if (r < 1) throw new IllegalArgumentException("robots must be at least 1: " + r);
+        }
+        fixed = ints(p.getProperty("fixed", "10"));
+        seeds = longs(p.getProperty("seeds", "1"));
+        String[] policies = values(p.getProperty("errorOnCollision", "false"));
+        errorOnCollision = new boolean[policies.length];
+        for (int i = 0; i < policies.length; i++)
+            errorOnCollision[i] = Boolean.parseBoolean(policies[i]);
+        schedulers = values(p.getProperty("scheduler", "fsync"));
+        for (String scheduler : schedulers)
+            scheduler(scheduler);
+        rounds = Integer.parseInt(p.getProperty("rounds", "100").trim());
+        density = Double.parseDouble(p.getProperty("density", "0.25").trim());
+        if (!(density > 0 && density <= 1))
+            throw new IllegalArgumentException("density must be in (0, 1]: " + density);
+    }
+
+    // reads a spec from a properties file
+    public static SweepSpec load(Reader in) throws IOException {
+        Properties p = new Properties();
+        p.load(in);
+        return new SweepSpec(p);
+    }
+
+    // returns every combination of the swept parameters
+    public List<Config> configs() {
+        List<Config> configs = new ArrayList<>();
+        for (int r : robots)
+            for (int f : fixed)
+                for (String scheduler : schedulers)
+                    for (boolean error : errorOnCollision)
+                        for (long seed : seeds)
+                            configs.add(new Config(r, f, scheduler, error, seed));
+        return configs;
+    }
+
+    // creates the scheduler described by a value of the scheduler parameter
+    static Scheduler scheduler(String value) {
+        String[] parts = value.split(":");
+        switch (parts[0].toLowerCase()) {
+            case "fsync": return Scheduler.fsync();
+            case "ssync": return Scheduler.ssync(Double.parseDouble(parts[1]));
+            case "async": return Scheduler.async(Integer.parseInt(parts[1]));
+            default: throw new IllegalArgumentException("unknown scheduler: " + value);
+        }
+    }
+
+    private static String[] values(String list) {
+        String[] values = list.split(",");
+        for (int i = 0; i < values.length; i++)
+            values[i] = values[i].trim();
+        return values;
+    }
+
+    private static int[] ints(String list) {
+        long[] longs = longs(list);
+        int[] ints = new int[longs.length];
+        for (int i = 0; i < ints.length; i++)
+            ints[i] = Math.toIntExact(longs[i]);
+        return ints;
+    }
+
+    private static long[] longs(String list) {
+        List<Long> longs = new ArrayList<>();
+        for (String value : values(list)) {
+            long[] range = range(value);
+            for (long i = range[0]; i <= range[1]; i++)
+                longs.add(i);
+        }
+        long[] result = new long[longs.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = longs.get(i);
+        return result;
+    }
+
+    // parses "a" or the inclusive range "a..b"
+    private static long[] range(String value) {
+        int dots = value.indexOf("..");
+        if (dots < 0) {
+            long v = Long.parseLong(value);
+            return new long[]{v, v};
+        }
+        long from = Long.parseLong(value.substring(0, dots).trim()), to = Long.parseLong(value.substring(dots + 2).trim());
+        if (to < from) throw new IllegalArgumentException("empty range: " + value);
+        return new long[]{from, to};
+    }
+
+    /**
+     * class Config represents the parameters of a single run of a sweep.
+     */
+    public static class Config {
+        public final int robots, fixed;
+        public final String scheduler;
+        public final boolean errorOnCollision;
+        public final long seed;
+
+        Config(int robots, int fixed, String scheduler, boolean errorOnCollision, long seed) {
+            this.robots = robots;
+            this.fixed = fixed;
+            this.scheduler = scheduler;
+            this.errorOnCollision = errorOnCollision;
+            this.seed = seed;
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package kcf;
+
+import java.util.Arrays;
+
+/**
+ * class SweptCollisionDetector finds the collisions of a whole move
+ * phase at once, without simulating it step by step.
+ * The path of every robot is split into segments, one per run of its
+ * Path plus a resting segment after the end of the path. Segments are
+ * assigned to square buckets of the grid and only segments sharing a
+ * bucket are intersected, each pair of segments is solved analytically
+ * for the steps at which both robots are on the same point (a vertex
+ * conflict) or exchange their points (a swap conflict). Buckets are
+ * independent and can be intersected in parallel.
+ */
+class SweptCollisionDetector {
+    // side of a bucket is between 1 << MIN_BUCKET_SHIFT and 1 << MAX_BUCKET_SHIFT grid points
+    private static final int MIN_BUCKET_SHIFT = 2;
+    private static final int MAX_BUCKET_SHIFT = 6;
+
+    // number of buckets intersected by a single task
+    private static final int BUCKETS_PER_TASK = 8;
+
+    // layout of a conflict in Part.conflicts
+    private static final int STEP = 0, ROBOT = 1, OTHER = 2, X = 3, Y = 4, TYPE = 5, STRIDE = 6;
+
+    // direction of a resting segment
+    private static final byte REST = -1;
+
+    private static final int[] DX = new int[Direction.values().length];
+    private static final int[] DY = new int[Direction.values().length];
+
+    static {
+        DX[Direction.RIGHT.ordinal()] = 1;
+        DX[Direction.LEFT.ordinal()] = -1;
+        DY[Direction.UP.ordinal()] = 1;
+        DY[Direction.DOWN.ordinal()] = -1;
+    }
+
+    // segment s covers the steps (t0[s], t0[s] + length[s]] of robot[s], starting from
+    // (x0[s], y0[s]) at step t0[s] and moving one point per step in direction[s]
+    private int[] robot = new int[16];
+    private int[] t0 = new int[16];
+    private int[] x0 = new int[16];
+    private int[] y0 = new int[16];
+    private int[] length = new int[16];
+    private byte[] direction = new byte[16];
+    private int segments = 0;
+
+    // bucket grid of the last call to detect()
+    private int originX, originY, shift;
+    private long width;
+
+    // conflicts found by every task of the last call to detect()
+    private Part[] parts = new Part[0];
+    private int partCount = 0;
+
+    /**
+     * Finds every step at which a moving robot ends up on the same point
+     * as another robot or exchanges its point with another moving robot,
+     * which is what checking the robots that moved after every step of
+     * the move phase would report.
+     * @param positions position of every robot at the start of the move phase
+     * @param paths paths[i] is the path robot i takes in the move phase
+     * @param moving robots with a non-empty path are moving[0..movingCount)
+     * @param executor executor the buckets are intersected on
+     * @return sorted distinct collisions packed as (step << 32 | robot)
+     */
+    long[] detect(PositionStore positions, Path[] paths, int[] moving, int movingCount, ComputeExecutor executor) {
+        segments = 0;
+        partCount = 0;
+
+        // length of the move phase
+        int steps = 0;
+        for (int j = 0; j < movingCount; j++)
+            steps = Math.max(steps, paths[moving[j]].size());
+        if (steps == 0) return new long[0];
+
+        boolean[] isMoving = new boolean[positions.size()];
+        for (int j = 0; j < movingCount; j++) {
+            int i = moving[j];
+            isMoving[i] = true;
+            int x = positions.x(i), y = positions.y(i), t = 0;
+            Path path = paths[i];
+            for (int r = 0; r < path.runCount(); r++) {
+                int d = path.runDirection(r).ordinal(), len = path.runLength(r);
+                addSegment(i, t, x, y, (byte) d, len);
+                x += DX[d] * len;
+                y += DY[d] * len;
+                t += len;
+            }
+            if (t < steps) addSegment(i, t, x, y, REST, steps - t);
+        }
+        for (int i = 0; i < positions.size(); i++) {
+            if (!isMoving[i]) addSegment(i, 0, positions.x(i), positions.y(i), REST, steps);
+        }
+
+        intersectBuckets(executor);
+
+        int eventCount = 0;
+        for (int p = 0; p < partCount; p++)
+            eventCount += parts[p].eventCount;
+        long[] result = new long[eventCount];
+        for (int p = 0, k = 0; p < partCount; k += parts[p].eventCount, p++)
+            System.arraycopy(parts[p].events, 0, result, k, parts[p].eventCount);
+        Arrays.sort(result);
+        int distinct = 0;
+        for (int k = 0; k < result.length; k++) {
+            if (k == 0 || result[k] != result[k - 1]) result[distinct++] = result[k];
+        }
+        return Arrays.copyOf(result, distinct);
+    }
+
+    static int step(long event) { return (int) (event >>> 32); }
+
+    static int robot(long event) { return (int) event; }
+
+    /**
+     * Returns the conflicts found by the last call to detect() up to a step,
+     * sorted by step and robots. Every pair of robots is reported once per step.
+     * @param round round the move phase belongs to
+     * @param maxStep last step to report
+     * @return conflicts of the steps [1, maxStep]
+     */
+    Collision[] collisions(int round, int maxStep) {
+        int count = 0;
+        for (int p = 0; p < partCount; p++) {
+            Part part = parts[p];
+            for (int c = 0; c < part.conflictCount; c++)
+                if (part.conflicts[c * STRIDE + STEP] <= maxStep) count++;
+        }
+        Collision[] result = new Collision[count];
+        count = 0;
+        for (int p = 0; p < partCount; p++) {
+            int[] c = parts[p].conflicts;
+            for (int o = 0; o < parts[p].conflictCount * STRIDE; o += STRIDE) {
+                if (c[o + STEP] > maxStep) continue;
+                result[count++] = new Collision(round, c[o + STEP], c[o + ROBOT], c[o + OTHER], c[o + X], c[o + Y],
+                        Collision.Type.values()[c[o + TYPE]]);
+            }
+        }
+        Arrays.sort(result, (a, b) -> (a.step != b.step) ? Integer.compare(a.step, b.step)
+                : (a.robot != b.robot) ? Integer.compare(a.robot, b.robot) : Integer.compare(a.other, b.other));
+        return result;
+    }
+
+    private void addSegment(int robot, int t0, int x0, int y0, byte direction, int length) {
+        if (segments == this.robot.length) {
+            int capacity = segments * 2;
+            this.robot = Arrays.copyOf(this.robot, capacity);
+            this.t0 = Arrays.copyOf(this.t0, capacity);
+            this.x0 = Arrays.copyOf(this.x0, capacity);
+            this.y0 = Arrays.copyOf(this.y0, capacity);
+            this.length = Arrays.copyOf(this.length, capacity);
+            this.direction = Arrays.copyOf(this.direction, capacity);
+        }
+        this.robot[segments] = robot;
+        this.t0[segments] = t0;
+        this.x0[segments] = x0;
+        this.y0[segments] = y0;
+        this.length[segments] = length;
+        this.direction[segments] = direction;
+        segments++;
+    }
+
+    private int endX(int s) { return x0[s] + ((direction[s] == REST) ? 0 : DX[direction[s]] * length[s]); }
+
+    private int endY(int s) { return y0[s] + ((direction[s] == REST) ? 0 : DY[direction[s]] * length[s]); }
+
+    // assigns segments to buckets and intersects the segments of every bucket
+    private void intersectBuckets(ComputeExecutor executor) {
+        // buckets of about a quarter of the average moving segment keep long
+        // segments from being added to too many buckets
+        long movingLength = 0, movingSegments = 0;
+        for (int s = 0; s < segments; s++) {
+            if (direction[s] == REST) continue;
+            movingLength += length[s];
+            movingSegments++;
+        }
+        shift = MIN_BUCKET_SHIFT;
+        while (shift < MAX_BUCKET_SHIFT && (4L << shift) < movingLength / Math.max(1, movingSegments))
+            shift++;
+
+        int minBx = Integer.MAX_VALUE, minBy = Integer.MAX_VALUE, maxBx = Integer.MIN_VALUE, maxBy = Integer.MIN_VALUE;
+        for (int s = 0; s < segments; s++) {
+            minBx = Math.min(minBx, Math.min(x0[s], endX(s)));
+            maxBx = Math.max(maxBx, Math.max(x0[s], endX(s)));
+            minBy = Math.min(minBy, Math.min(y0[s], endY(s)));
+            maxBy = Math.max(maxBy, Math.max(y0[s], endY(s)));
+        }
+        // grow the buckets until their linear index fits in 31 bits
+        while ((((long) maxBx - minBx) >> shift) + 1 > (1L << 31) / ((((long) maxBy - minBy) >> shift) + 1))
+            shift++;
+        originX = minBx;
+        originY = minBy;
+        width = (((long) maxBx - minBx) >> shift) + 1;
+
+        // entries are (bucket << 32 | segment), sorted to group segments by bucket
+        long[] moving = new long[segments];
+        int movingCount = 0;
+        long[] resting = new long[segments];
+        int restingCount = 0;
+        for (int s = 0; s < segments; s++) {
+            if (direction[s] == REST) {
+                // a resting segment is a single point in a single bucket
+                resting[restingCount++] = (bucket(x0[s], y0[s]) << 32) | s;
+                continue;
+            }
+            int bx0 = (int) (((long) Math.min(x0[s], endX(s)) - originX) >> shift);
+            int bx1 = (int) (((long) Math.max(x0[s], endX(s)) - originX) >> shift);
+            int by0 = (int) (((long) Math.min(y0[s], endY(s)) - originY) >> shift);
+            int by1 = (int) (((long) Math.max(y0[s], endY(s)) - originY) >> shift);
+            for (int by = by0; by <= by1; by++) {
+                for (int bx = bx0; bx <= bx1; bx++) {
+                    if (movingCount == moving.length) moving = Arrays.copyOf(moving, movingCount * 2);
+                    moving[movingCount++] = ((by * width + bx) << 32) | s;
+                }
+            }
+        }
+        Arrays.sort(moving, 0, movingCount);
+        Arrays.sort(resting, 0, restingCount);
+
+        // start of every bucket in moving, the last entry is movingCount
+        int[] groups = new int[movingCount + 1];
+        int groupCount = 0;
+        for (int k = 0; k < movingCount; k++) {
+            if (k == 0 || (moving[k] >>> 32) != (moving[k - 1] >>> 32)) groups[groupCount++] = k;
+        }
+        groups[groupCount] = movingCount;
+
+        partCount = (groupCount + BUCKETS_PER_TASK - 1) / BUCKETS_PER_TASK;
+        if (parts.length < partCount) {
+            int old = parts.length;
+            parts = Arrays.copyOf(parts, partCount);
+            for (int p = old; p < partCount; p++)
+                parts[p] = new Part();
+        }
+        long[] m = moving, r = resting;
+        int rc = restingCount, gc = groupCount;
+        executor.forEach(partCount, p -> intersectGroups(m, r, rc, groups, p * BUCKETS_PER_TASK,
+                Math.min(gc, (p + 1) * BUCKETS_PER_TASK), parts[p].reset()));
+    }
+
+    // intersects the buckets [fromGroup, toGroup), resting segments never collide with each other
+    private void intersectGroups(long[] moving, long[] resting, int restingCount, int[] groups,
+                                 int fromGroup, int toGroup, Part part) {
+        int r = lowerBound(resting, restingCount, moving[groups[fromGroup]] >>> 32);
+        for (int g = fromGroup; g < toGroup; g++) {
+            int from = groups[g], to = groups[g + 1];
+            long bucket = moving[from] >>> 32;
+            while (r < restingCount && (resting[r] >>> 32) < bucket) r++;
+            int restTo = r;
+            while (restTo < restingCount && (resting[restTo] >>> 32) == bucket) restTo++;
+
+            for (int a = from; a < to; a++) {
+                for (int b = a + 1; b < to; b++)
+                    intersect((int) moving[a], (int) moving[b], bucket, part);
+                for (int b = r; b < restTo; b++)
+                    intersect((int) moving[a], (int) resting[b], bucket, part);
+            }
+        }
+    }
+
+    // index of the first entry of sorted[0..count) in a bucket >= bucket
+    private static int lowerBound(long[] sorted, int count, long bucket) {
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if ((sorted[mid] >>> 32) < bucket) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private long bucket(long x, long y) {
+        return ((y - originY) >> shift) * width + ((x - originX) >> shift);
+    }
+
+    // records the conflicts of segments a and b on points inside bucket
+    private void intersect(int a, int b, long bucket, Part part) {
+        if (robot[a] == robot[b]) return;
+
+        int lo = Math.max(t0[a], t0[b]) + 1, hi = Math.min(t0[a] + length[a], t0[b] + length[b]);
+        if (lo > hi) return;
+
+        // position of s at step t is (cx[s] + vx[s] * t, cy[s] + vy[s] * t)
+        int vxa = dx(a), vya = dy(a), vxb = dx(b), vyb = dy(b);
+        long cx = ((long) x0[a] - (long) vxa * t0[a]) - ((long) x0[b] - (long) vxb * t0[b]);
+        long cy = ((long) y0[a] - (long) vya * t0[a]) - ((long) y0[b] - (long) vyb * t0[b]);
+        int vx = vxa - vxb, vy = vya - vyb;
+
+        // the robots meet at every step in [lo, hi] if both are constant, else at a single
+        // step, or half way through a step when they move towards each other on a line
+        long t;
+        if (vx == 0 && vy == 0) {
+            if (cx != 0 || cy != 0) return;
+            for (int step = lo; step <= hi; step++)
+                record(a, b, step, Collision.Type.VERTEX, bucket, part);
+            return;
+        } else if (vx != 0) {
+            if (cx % vx != 0) {
+                if (vy == 0 && cy == 0 && Math.abs(vx) == 2)
+                    swap(a, b, (1 - cx * Integer.signum(vx)) / 2, lo, hi, bucket, part);
+                return;
+            }
+            t = -cx / vx;
+            if (cy + (long) vy * t != 0) return;
+        } else {
+            if (cx != 0) return;
+            if (cy % vy != 0) {
+                if (Math.abs(vy) == 2)
+                    swap(a, b, (1 - cy * Integer.signum(vy)) / 2, lo, hi, bucket, part);
+                return;
+            }
+            t = -cy / vy;
+        }
+        if (t >= lo && t <= hi)
+            record(a, b, (int) t, Collision.Type.VERTEX, bucket, part);
+    }
+
+    // records the swap of a and b in step t if both move in it
+    private void swap(int a, int b, long t, int lo, int hi, long bucket, Part part) {
+        if (t >= lo && t <= hi)
+            record(a, b, (int) t, Collision.Type.SWAP, bucket, part);
+    }
+
+    // records the conflict of a and b in step t if it happens inside bucket
+    private void record(int a, int b, int t, Collision.Type type, long bucket, Part part) {
+        // pairs share all buckets between them, only the bucket of the point a is on after step t records it
+        if (bucket(x(a, t), y(a, t)) != bucket) return;
+        // only robots that moved in step t are reported
+        if (direction[a] != REST) part.addEvent(t, robot[a]);
+        if (direction[b] != REST) part.addEvent(t, robot[b]);
+
+        // the reported robot moved in the step and has the lower index if both did
+        if (direction[a] == REST || (direction[b] != REST && robot[b] < robot[a])) {
+            int s = a;
+            a = b;
+            b = s;
+        }
+        part.addConflict(t, robot[a], robot[b], x(a, t), y(a, t), type);
+    }
+
+    // position of segment s after step t
+    private int x(int s, int t) { return x0[s] + dx(s) * (t - t0[s]); }
+
+    private int y(int s, int t) { return y0[s] + dy(s) * (t - t0[s]); }
+
+    private int dx(int s) { return (direction[s] == REST) ? 0 : DX[direction[s]]; }
+
+    private int dy(int s) { return (direction[s] == REST) ? 0 : DY[direction[s]]; }
+
+
+    // conflicts found by a single task
+    private static final class Part {
+        // packed as (step << 32 | robot)
+        long[] events = new long[16];
+        int eventCount = 0;
+
+        // STRIDE ints per conflict
+        int[] conflicts = new int[16 * STRIDE];
+        int conflictCount = 0;
+
+        Part reset() {
+            eventCount = 0;
+            conflictCount = 0;
+            return this;
+        }
+
+        void addEvent(int t, int robot) {
+            if (eventCount == events.length) events = Arrays.copyOf(events, eventCount * 2);
+            events[eventCount++] = ((long) t << 32) | robot;
+        }
+
+        void addConflict(int t, int robot, int other, int x, int y, Collision.Type type) {
+            if ((conflictCount + 1) * STRIDE > conflicts.length) conflicts = Arrays.copyOf(conflicts, conflicts.length * 2);
+            int o = conflictCount++ * STRIDE;
+            conflicts[o + STEP] = t;
+            conflicts[o + ROBOT] = robot;
+            conflicts[o + OTHER] = other;
+            conflicts[o + X] = x;
+            conflicts[o + Y] = y;
+            conflicts[o + TYPE] = type.ordinal();
+        }
+    }
+}
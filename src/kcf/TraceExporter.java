@@ -0,0 +1,135 @@
+package kcf;
+
+import grid.Background;
+import grid.Camera;
+import grid.FrameExporter;
+import grid.Layer;
+import grid.OffscreenRenderer;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * class TraceExporter renders the rounds of a trace recorded by a
+ * TraceRecorder into a PNG sequence or an animated GIF without a display,
+ * so runs can be looked at from headless build machines. The camera is
+ * fitted to the robots and fixed points of all rendered rounds.
+ */
+public class TraceExporter {
+    // largest tile size a fitted camera uses
+    private static final int MAX_TILE_SIZE = 32;
+
+    // time a round is shown in an animated GIF
+    private static final int GIF_DELAY_MILLIS = 50;
+
+    private TraceExporter() {}
+
+    /**
+     * Usage: TraceExporter trace out [every] [width height]
+     * A GIF is written if out ends with ".gif", otherwise out is a
+     * directory the frames are written to as frame_000000.png, ...
+     * Only every 'every'-th round and the last one are rendered.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: TraceExporter trace out [every] [width height]");
+            System.exit(2);
+        }
+        int every = (args.length > 2) ? Integer.parseInt(args[2]) : 1;
+        int width = (args.length > 4) ? Integer.parseInt(args[3]) : 800;
+        int height = (args.length > 4) ? Integer.parseInt(args[4]) : 600;
+
+        File out = new File(args[1]);
+        long start = System.nanoTime();
+        int frames;
+        try (TraceReplay replay = new TraceReplay(new File(args[0]), 1)) {
+            FrameExporter exporter;
+            int buffers;
+            if (out.getName().toLowerCase().endsWith(".gif")) {
+                exporter = FrameExporter.gif(out, GIF_DELAY_MILLIS);
+                buffers = 2;
+            } else {
+                int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+                exporter = FrameExporter.png(out, "frame_", threads);
+                buffers = threads + 1;
+            }
+            frames = export(replay, exporter, buffers, width, height, every);
+        }
+        System.out.printf("%d frames written to %s in %.1f s%n", frames, out, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Renders every 'every'-th round of a replay and the last one, and
+     * closes the exporter.
+     * @param buffers number of frames rendered or encoded at once
+     * @return number of frames exported
+     */
+    public static int export(
+            TraceReplay replay, FrameExporter exporter, int buffers,
+            int width, int height, int every
+    ) throws IOException, InterruptedException {
+        int rounds = Math.max(1, replay.rounds());
+        int step = Math.max(1, every);
+
+        // decoding is cheap next to rendering, the rounds are decoded
+        // once to find the area the camera has to show
+        int[] bounds = {Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (int i = 0; i < rounds; i = next(i, step, rounds)) {
+            replay.seek(i);
+            replay.update();
+            include(bounds, replay.getSnapshot());
+        }
+        Camera camera = fit(bounds, width, height);
+
+        try (OffscreenRenderer renderer = new OffscreenRenderer(camera, exporter, buffers)) {
+            Layer background = new Layer(Layer.Kind.STATIC);
+            background.addEntity(new Background());
+            renderer.addLayer(background);
+            renderer.addEntity(replay);
+
+            for (int i = 0; i < rounds; i = next(i, step, rounds)) {
+                replay.seek(i);
+                replay.update();
+                renderer.renderFrame();
+            }
+            return renderer.frames();
+        }
+    }
+
+    // round rendered after round i, the last round is always rendered
+    private static int next(int i, int step, int rounds) {
+        if (i == rounds - 1) return rounds;
+        return (int) Math.min((long) i + step, rounds - 1);
+    }
+
+    // grows bounds {minX, maxX, minY, maxY} by the robots and fixed points of a snapshot
+    private static void include(int[] bounds, SimulationSnapshot s) {
+        for (int i = 0; i < s.robotCount(); i++)
+            include(bounds, s.robotX(i), s.robotY(i));
+        for (int i = 0; i < s.fixedCount(); i++)
+            include(bounds, s.fixedX(i), s.fixedY(i));
+    }
+
+    private static void include(int[] bounds, int x, int y) {
+        bounds[0] = Math.min(bounds[0], x);
+        bounds[1] = Math.max(bounds[1], x);
+        bounds[2] = Math.min(bounds[2], y);
+        bounds[3] = Math.max(bounds[3], y);
+    }
+
+    // camera centered on bounds {minX, maxX, minY, maxY}, with tiles as large as fit
+    static Camera fit(int[] bounds, int width, int height) {
+        int minX = bounds[0], maxX = bounds[1], minY = bounds[2], maxY = bounds[3];
+        if (minX > maxX) minX = maxX = minY = maxY = 0;
+
+        // one free tile around the points
+        long spanX = (long) maxX - minX + 3, spanY = (long) maxY - minY + 3;
+        int tileSize = (int) Math.min(width / spanX, height / spanY);
+        tileSize = Math.max(Camera.MIN_TILE_SIZE, Math.min(MAX_TILE_SIZE, tileSize));
+
+        int centerX = (int) (((long) minX + maxX) / 2), centerY = (int) (((long) minY + maxY) / 2);
+        int topLeftX = centerX - width / tileSize / 2;
+        int topLeftY = centerY + height / tileSize / 2;
+        return new Camera(width, height, tileSize, topLeftX, topLeftY, 0, 0);
+    }
+}
@@ -0,0 +1,166 @@
+package kcf;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * class TraceRecorder streams the rounds of a Simulation to a binary
+ * trace file that can be replayed by a TraceReplay. Every round is
+ * written as a self-contained block, so any round can be decoded
+ * without the rounds before it.
+ * <pre>
+ * header: magic, version, robot count, fixed point count (ints), fixed points
+ * block:  byte length of the rest of the block (int), round, positions, paths
+ * index:  file offset of every block (longs)
+ * footer: index offset (long), block count (int), magic (int)
+ * </pre>
+ * Points are written robot by robot as zigzag varint deltas from the
+ * previous point, a path as its run count followed by a varint
+ * (length &lt;&lt; 2 | direction) per run. Numbers are big-endian.
+ */
+public class TraceRecorder implements Closeable {
+    static final int MAGIC = 0x4B434654;    // "KCFT"
+    static final int VERSION = 1;
+
+    private final FileChannel channel;
+
+    // file offset of every block written so far
+    private long[] offsets = new long[64];
+    private int blocks = 0;
+
+    // offset the next write goes to
+    private long position = 0;
+
+    private int robots = -1;
+
+    // block being encoded
+    private byte[] buffer = new byte[1 << 12];
+    private int length = 0;
+
+    /**
+     * Creates or truncates the trace file. The header is written with the first round.
+     * @param file file to write the trace to
+     */
+    public TraceRecorder(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    // number of rounds recorded so far
+    public int rounds() { return blocks; }
+
+    /**
+     * Records a round. Called by the Simulation the recorder is set on.
+     * @param round number of the round
+     * @param xs x coordinate of robot i is xs[i]
+     * @param ys y coordinate of robot i is ys[i]
+     * @param robots number of robots
+     * @param fixedX x coordinates of the fixed points
+     * @param fixedY y coordinates of the fixed points
+     * @param paths paths[i] is the path robot i takes in the round
+     */
+    void record(int round, int[] xs, int[] ys, int robots, int[] fixedX, int[] fixedY, Path[] paths) {
+        try {
+            if (this.robots < 0) writeHeader(robots, fixedX, fixedY);
+            if (robots != this.robots)
+                throw new IllegalArgumentException("trace has " + this.robots + " robots, got " + robots);
+
+            length = 0;
+            putInt(0);
+            putVarint(round);
+            putPoints(xs, ys, robots);
+            for (int i = 0; i < robots; i++) {
+                Path path = paths[i];
+                putVarint(path.runCount());
+                for (int r = 0; r < path.runCount(); r++)
+                    putVarint(((long) path.runLength(r) << 2) | path.runDirection(r).ordinal());
+            }
+            ByteBuffer.wrap(buffer, 0, 4).putInt(length - 4);
+
+            if (blocks == offsets.length) offsets = Arrays.copyOf(offsets, blocks * 2);
+            offsets[blocks++] = position;
+            write();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // writes the index and the footer and closes the file
+    @Override
+    public void close() throws IOException {
+        try {
+            if (robots < 0) writeHeader(0, new int[0], new int[0]);
+            long index = position;
+            length = 0;
+            for (int b = 0; b < blocks; b++)
+                putLong(offsets[b]);
+            putLong(index);
+            putInt(blocks);
+            putInt(MAGIC);
+            write();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeHeader(int robots, int[] fixedX, int[] fixedY) throws IOException {
+        this.robots = robots;
+        length = 0;
+        putInt(MAGIC);
+        putInt(VERSION);
+        putInt(robots);
+        putInt(fixedX.length);
+        putPoints(fixedX, fixedY, fixedX.length);
+        write();
+    }
+
+    private void write() throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, length);
+        while (bytes.hasRemaining())
+            position += channel.write(bytes, position);
+    }
+
+    private void putPoints(int[] xs, int[] ys, int n) {
+        int px = 0, py = 0;
+        for (int i = 0; i < n; i++) {
+            putVarint(zigzag((long) xs[i] - px));
+            putVarint(zigzag((long) ys[i] - py));
+            px = xs[i];
+            py = ys[i];
+        }
+    }
+
+    private static long zigzag(long v) { return (v << 1) ^ (v >> 63); }
+
+    private void putVarint(long v) {
+        ensure(10);
+        while ((v & ~0x7FL) != 0) {
+            buffer[length++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buffer[length++] = (byte) v;
+    }
+
+    private void putInt(int v) {
+        ensure(4);
+        ByteBuffer.wrap(buffer, length, 4).putInt(v);
+        length += 4;
+    }
+
+    private void putLong(long v) {
+        ensure(8);
+        ByteBuffer.wrap(buffer, length, 8).putLong(v);
+        length += 8;
+    }
+
+    private void ensure(int bytes) {
+        if (length + bytes > buffer.length)
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + bytes));
+    }
+}
@@ -0,0 +1,285 @@
+package kcf;
+
+import grid.Camera;
+import grid.DirtyRegions;
+import grid.Entity;
+
+import java.awt.*;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * class TraceReplay renders a trace written by a TraceRecorder. The
+ * trace is memory-mapped and rounds are found through the index of
+ * the trace, so seeking to any round only decodes that round. Traces
+ * without an index, e.g. from a run that was killed, are indexed by
+ * walking their blocks once when opened.
+ */
+public class TraceReplay implements Entity, DirtyRegions, Closeable {
+    // size of the region mapped around a block, consecutive rounds share a mapping
+    private static final long MAP_SIZE = 64L << 20;
+
+    private final FileChannel channel;
+    private final long fileSize;
+
+    private final int robots;
+    private final int[] fixedX, fixedY;
+
+    // file offset of every block
+    private final long[] offsets;
+    private final int blocks;
+
+    // mapped region of the file starting at mapStart
+    private MappedByteBuffer map;
+    private long mapStart, mapEnd;
+
+    // round the render thread should see, set from any thread
+    private volatile int target = 0;
+    private int decoded = -1;
+
+    // while playing the replay moves to the next block every 'updatesPerRound' updates
+    private volatile boolean playing = false;
+    private final int updatesPerRound;
+    private int updates = 0;
+
+    private final PositionStore positions;
+    private final SnapshotBuffer snapshots;
+    private final SnapshotRenderer renderer = new SnapshotRenderer();
+
+    /**
+     * @param file trace file written by a TraceRecorder
+     * @param updatesPerRound number of updates a round is shown for while playing
+     */
+    public TraceReplay(File file, int updatesPerRound) throws IOException {
+        this.updatesPerRound = Math.max(1, updatesPerRound);
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            fileSize = channel.size();
+            ByteBuffer header = read(0, 16);
+            if (header.getInt() != TraceRecorder.MAGIC) throw new IOException("not a trace file: " + file);
+            if (header.getInt() != TraceRecorder.VERSION) throw new IOException("unsupported trace version");
+            robots = header.getInt();
+            fixedX = new int[header.getInt()];
+            fixedY = new int[fixedX.length];
+
+            ByteBuffer b = map(16, MAP_SIZE);
+            getPoints(b, fixedX, fixedY, fixedX.length);
+            long first = mapStart + b.position();
+
+            long[] index = readIndex(first);
+            if (index == null) index = scan(first);
+            offsets = index;
+            blocks = index.length;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        positions = new PositionStore(robots);
+        for (int i = 0; i < robots; i++)
+            positions.add(0, 0);
+        snapshots = new SnapshotBuffer(robots, fixedX, fixedY);
+        seek(0);
+        update();
+    }
+
+    // number of rounds in the trace
+    public int rounds() { return blocks; }
+
+    public int robotCount() { return robots; }
+
+    // shows the i-th recorded round from the next update on
+    public void seek(int i) {
+        if (i < 0 || i >= Math.max(1, blocks)) throw new IndexOutOfBoundsException("round index " + i);
+        target = i;
+    }
+
+    // index of the round shown by the next update
+    public int position() { return target; }
+
+    public void setPlaying(boolean playing) { this.playing = playing; }
+
+    public boolean isPlaying() { return playing; }
+
+    @Override
+    public void update() {
+        if (playing && ++updates >= updatesPerRound) {
+            updates = 0;
+            if (target + 1 < blocks) target++;
+            else playing = false;
+        }
+        int t = target;
+        if (t == decoded || blocks == 0) return;
+        int round = readPositions(t);
+        decoded = t;
+        snapshots.publish(positions, round, playing ? SimulationStates.MOVE : SimulationStates.PAUSED);
+    }
+
+    /**
+     * Returns the snapshot of the round shown, published by the last update.
+     * The snapshot must not be used after the next call of this method.
+     */
+    public SimulationSnapshot getSnapshot() {
+        return snapshots.read();
+    }
+
+    @Override
+    public void render(Graphics2D g2D, Camera c) {
+        renderer.render(g2D, c, snapshots::read);
+    }
+
+    @Override
+    public boolean dirtyRegions(Camera c, List<Rectangle> dirty) {
+        return renderer.dirtyRegions(getSnapshot(), c, dirty);
+    }
+
+    /**
+     * Decodes the paths of the i-th recorded round. The block is read
+     * into a buffer of its own instead of the mapping used by update(),
+     * so it can be called from any thread.
+     * @param i index of the round
+     * @param paths paths[r] is set to the path robot r took in the round
+     */
+    public void readPaths(int i, Path[] paths) {
+        ByteBuffer b;
+        try {
+            b = read(offsets[i] + 4, length(read(offsets[i], 4).getInt(), offsets[i]));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        getVarint(b);
+        int[] xs = new int[robots], ys = new int[robots];
+        getPoints(b, xs, ys, robots);
+        Direction[] directions = Direction.values();
+        for (int r = 0; r < robots; r++) {
+            Path path = new Path();
+            for (long runs = getVarint(b); runs > 0; runs--) {
+                long run = getVarint(b);
+                path.append(directions[(int) (run & 3)], (int) (run >>> 2));
+            }
+            paths[r] = path;
+        }
+    }
+
+    // decodes the positions of the i-th recorded round and returns its round number
+    private int readPositions(int i) {
+        ByteBuffer b = block(i);
+        int round = (int) getVarint(b);
+        int x = 0, y = 0;
+        for (int r = 0; r < robots; r++) {
+            x += (int) unzigzag(getVarint(b));
+            y += (int) unzigzag(getVarint(b));
+            positions.set(r, x, y);
+        }
+        return round;
+    }
+
+    // returns a buffer over the i-th block, after its length, on the mapping of the render thread
+    private ByteBuffer block(int i) {
+        try {
+            int length = length(map(offsets[i], 4).getInt(), offsets[i]);
+            ByteBuffer b = map(offsets[i], 4L + length);
+            b.position(b.position() + 4);
+            b.limit(b.position() + length);
+            return b.slice();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // checks the length of the block at offset
+    private int length(int length, long offset) throws IOException {
+        if (length < 0 || offset + 4 + length > fileSize)
+            throw new IOException("corrupt trace block at " + offset);
+        return length;
+    }
+
+    // reads the index from the footer, returns null if the trace has no valid footer
+    private long[] readIndex(long first) throws IOException {
+        if (fileSize - first < 16) return null;
+        ByteBuffer footer = read(fileSize - 16, 16);
+        long index = footer.getLong();
+        int count = footer.getInt();
+        if (footer.getInt() != TraceRecorder.MAGIC || count < 0 || index < first
+                || index + 8L * count + 16 != fileSize) return null;
+        long[] offsets = new long[count];
+        channel.map(FileChannel.MapMode.READ_ONLY, index, 8L * count).asLongBuffer().get(offsets);
+        return offsets;
+    }
+
+    // finds the complete blocks by following their lengths
+    private long[] scan(long first) throws IOException {
+        long[] offsets = new long[64];
+        int count = 0;
+        ByteBuffer length = ByteBuffer.allocate(4);
+        for (long offset = first; offset + 4 <= fileSize; ) {
+            length.clear();
+            channel.read(length, offset);
+            // a negative length is a corrupt block, the trace ends before it
+            long end = offset + 4 + length.getInt(0);
+            if (length.getInt(0) < 0 || end > fileSize) break;
+            if (count == offsets.length) offsets = Arrays.copyOf(offsets, count * 2);
+            offsets[count++] = offset;
+            offset = end;
+        }
+        return Arrays.copyOf(offsets, count);
+    }
+
+    private ByteBuffer read(long offset, int length) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(length);
+        while (b.hasRemaining() && channel.read(b, offset + b.position()) >= 0) { }
+        if (b.hasRemaining()) throw new IOException("trace file is truncated");
+        b.flip();
+        return b;
+    }
+
+    // returns a buffer positioned at offset that maps at least length bytes of the file,
+    // the current mapping is reused if it covers them
+    private ByteBuffer map(long offset, long length) throws IOException {
+        long end = Math.min(fileSize, offset + length);
+        if (map == null || offset < mapStart || end > mapEnd) {
+            long size = Math.min(fileSize - offset, Math.max(length, MAP_SIZE));
+            if (size > Integer.MAX_VALUE) throw new IOException("trace block is too large to map");
+            map = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+            mapStart = offset;
+            mapEnd = offset + size;
+        }
+        ByteBuffer b = map.duplicate();
+        b.position((int) (offset - mapStart));
+        return b;
+    }
+
+    private static void getPoints(ByteBuffer b, int[] xs, int[] ys, int n) {
+        int x = 0, y = 0;
+        for (int i = 0; i < n; i++) {
+            x += (int) unzigzag(getVarint(b));
+            y += (int) unzigzag(getVarint(b));
+            xs[i] = x;
+            ys[i] = y;
+        }
+    }
+
+    private static long getVarint(ByteBuffer b) {
+        long v = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte next = b.get();
+            v |= (long) (next & 0x7F) << shift;
+            if (next >= 0) return v;
+        }
+    }
+
+    private static long unzigzag(long v) { return (v >>> 1) ^ -(v & 1); }
+
+    @Override
+    public void close() throws IOException {
+        map = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,137 @@
+package kcf;
+
+import java.util.Arrays;
+
+/**
+ * class VisibilityGrid is a uniform grid over a set of points
+ * that finds the points within a radius of a query point. Cells
+ * are at least as large as the radius, so a query only looks at
+ * the 3x3 cells around the query point. The grid is rebuilt with
+ * a counting sort in O(n) whenever the points change.
+ */
+class VisibilityGrid {
+    private final int radius;
+
+    // bounding box origin and side of a cell
+    private int minX, minY, side = 1;
+
+    // number of cells along each axis
+    private int width = 1, height = 1;
+
+    // points of cell c are (cellX[k], cellY[k]) for k in [cellStart[c], cellStart[c + 1])
+    private int[] cellStart = new int[2];
+    private int[] cellX = new int[0];
+    private int[] cellY = new int[0];
+
+    VisibilityGrid(int radius) {
+        this.radius = radius;
+    }
+
+    int radius() { return radius; }
+
+    // indexes the first size points of xs and ys, the arrays are copied
+    void build(int[] xs, int[] ys, int size) {
+        if (size == 0) {
+            width = height = 1;
+            Arrays.fill(cellStart, 0);
+            return;
+        }
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        minX = Integer.MAX_VALUE;
+        minY = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+
+        // sparse points get larger cells so there are at most about two cells per point
+        long maxCells = Math.max(16, 2L * size);
+        long s = Math.max(1, radius), w, h;
+        while ((w = ((long) maxX - minX) / s + 1) * (h = ((long) maxY - minY) / s + 1) > maxCells)
+            s *= 2;
+        side = (int) Math.min(s, Integer.MAX_VALUE);
+        width = (int) w;
+        height = (int) h;
+
+        int cells = width * height;
+        if (cellStart.length < cells + 1) cellStart = new int[cells + 1];
+        else Arrays.fill(cellStart, 0, cells + 1, 0);
+        if (cellX.length < size) {
+            cellX = new int[size];
+            cellY = new int[size];
+        }
+        for (int i = 0; i < size; i++)
+            cellStart[cell(xs[i], ys[i])]++;
+        for (int c = 1; c < cells; c++)
+            cellStart[c] += cellStart[c - 1];
+        cellStart[cells] = size;
+        // cellStart[c] is the end of cell c, filling back to front moves it to the start
+        for (int i = size - 1; i >= 0; i--) {
+            int k = --cellStart[cell(xs[i], ys[i])];
+            cellX[k] = xs[i];
+            cellY[k] = ys[i];
+        }
+    }
+
+    private int cell(int x, int y) {
+        return (int) (((long) y - minY) / side) * width + (int) (((long) x - minX) / side);
+    }
+
+    // gathers the indexed points within the radius of (x, y) into visible
+    void query(int x, int y, Visible visible) {
+        visible.size = 0;
+        long r2 = (long) radius * radius;
+        int cx0 = clamp((((long) x - radius) - minX) / side, width), cx1 = clamp((((long) x + radius) - minX) / side, width);
+        int cy0 = clamp((((long) y - radius) - minY) / side, height), cy1 = clamp((((long) y + radius) - minY) / side, height);
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int k = cellStart[cy * width + cx0], end = cellStart[cy * width + cx1 + 1]; k < end; k++) {
+                long dx = (long) cellX[k] - x, dy = (long) cellY[k] - y;
+                if (dx * dx + dy * dy <= r2) visible.add(cellX[k], cellY[k]);
+            }
+        }
+    }
+
+    // gathers the points of view within the radius of (x, y) into visible without an index
+    void scan(PointView view, int x, int y, Visible visible) {
+        visible.size = 0;
+        long r2 = (long) radius * radius;
+        for (int i = 0; i < view.size(); i++) {
+            long dx = (long) view.x(i) - x, dy = (long) view.y(i) - y;
+            if (dx * dx + dy * dy <= r2) visible.add(view.x(i), view.y(i));
+        }
+    }
+
+    // floor of the cell coordinate c clamped to [0, cells)
+    private static int clamp(long c, int cells) {
+        return (int) Math.max(0, Math.min(cells - 1, c));
+    }
+
+    /**
+     * class Visible holds the points visible to a single robot and
+     * a view of them that is passed to its look-compute-move cycle.
+     */
+    static class Visible {
+        private int[] xs = new int[8];
+        private int[] ys = new int[8];
+        private int size = 0;
+
+        private final PointView view = new PointView();
+
+        private void add(int x, int y) {
+            if (size == xs.length) {
+                xs = Arrays.copyOf(xs, size * 2);
+                ys = Arrays.copyOf(ys, size * 2);
+            }
+            xs[size] = x;
+            ys[size] = y;
+            size++;
+        }
+
+        PointView view() {
+            view.bind(xs, ys, size, +1);
+            return view;
+        }
+    }
+}
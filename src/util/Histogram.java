@@ -0,0 +1,134 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * class Histogram represents a log-linear histogram of non-negative longs,
+ * in the style of HdrHistogram. Every power of two is split into
+ * SUB_BUCKETS buckets of equal width, so any recorded value is known to
+ * within 1 / SUB_BUCKETS (about 3%) of itself using a fixed 15 KB of counts.
+ * Recording is lock-free and does not allocate, snapshots can be taken
+ * from any thread while values are recorded.
+ */
+public final class Histogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // buckets needed to cover every value up to Long.MAX_VALUE
+    static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong sum = new AtomicLong();
+
+    // set by the Metrics the histogram belongs to
+    private volatile boolean jfr = false;
+
+    public Histogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() { return name; }
+
+    // records a value, negative values are recorded as 0
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts.incrementAndGet(index(value));
+        sum.addAndGet(value);
+        if (jfr) MetricEvent.commit(name, value);
+    }
+
+    void setJfr(boolean jfr) { this.jfr = jfr; }
+
+    // returns the counts recorded so far
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        // the sum is read first so it never includes values missing from the counts
+        long total = sum.get();
+        for (int i = 0; i < BUCKETS; i++)
+            copy[i] = counts.get(i);
+        return new Snapshot(copy, total);
+    }
+
+    // bucket of a non-negative value
+    static int index(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    // smallest value of a bucket
+    static long lowest(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = index / SUB_BUCKETS - 1;
+        return (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+    }
+
+    // largest value of a bucket
+    static long highest(int index) {
+        return (index + 1 == BUCKETS) ? Long.MAX_VALUE : lowest(index + 1) - 1;
+    }
+
+    /**
+     * class Snapshot represents the counts of a Histogram at one point in
+     * time. The difference of two snapshots is the histogram of the values
+     * recorded between them. Values are reported as the largest value of
+     * their bucket.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count, sum;
+
+        private Snapshot(long[] counts, long sum) {
+            this.counts = counts;
+            this.sum = sum;
+            long count = 0;
+            for (long c : counts)
+                count += c;
+            this.count = count;
+        }
+
+        // values recorded since an earlier snapshot of the same histogram
+        public Snapshot minus(Snapshot earlier) {
+            long[] difference = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++)
+                difference[i] = counts[i] - earlier.counts[i];
+            return new Snapshot(difference, sum - earlier.sum);
+        }
+
+        public long count() { return count; }
+
+        public long sum() { return sum; }
+
+        public double mean() { return (count == 0) ? 0 : (double) sum / count; }
+
+        public long min() {
+            for (int i = 0; i < BUCKETS; i++)
+                if (counts[i] > 0) return highest(i);
+            return 0;
+        }
+
+        public long max() {
+            for (int i = BUCKETS - 1; i >= 0; i--)
+                if (counts[i] > 0) return highest(i);
+            return 0;
+        }
+
+        /**
+         * Returns the value at or below which the given share of the values lie.
+         * @param percentile in [0, 100]
+         */
+        public long percentile(double percentile) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) return highest(i);
+            }
+            return max();
+        }
+    }
+}
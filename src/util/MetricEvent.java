@@ -0,0 +1,35 @@
+package util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * class MetricEvent is the Flight Recorder event committed for every value
+ * recorded into a Histogram of a Metrics with JFR enabled. It is only
+ * loaded once JFR is enabled, so the metrics also run on JVMs without
+ * the jdk.jfr module.
+ */
+@Name("gridsystem.Metric")
+@Label("Metric")
+@Category("GridSystem")
+@Description("A value recorded into a histogram, e.g. the duration of a phase in nanoseconds")
+@StackTrace(false)
+final class MetricEvent extends Event {
+    @Label("Name")
+    String name;
+
+    @Label("Value")
+    long value;
+
+    static void commit(String name, long value) {
+        MetricEvent e = new MetricEvent();
+        if (!e.isEnabled()) return;
+        e.name = name;
+        e.value = value;
+        e.commit();
+    }
+}
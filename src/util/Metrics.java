@@ -0,0 +1,71 @@
+package util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * class Metrics represents a registry of named histograms, counters and
+ * gauges. Components record into a Metrics only when one is set on them,
+ * without one they skip all measurement. A MetricsReporter prints the
+ * registry periodically, and with JFR enabled every recorded value is
+ * also committed as a Flight Recorder event.
+ */
+public class Metrics {
+    private final Map<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, DoubleSupplier> gauges = new ConcurrentSkipListMap<>();
+
+    private volatile boolean jfr = false;
+
+    // returns the histogram with the given name, it is created if needed
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> {
+            Histogram h = new Histogram(n);
+            h.setJfr(jfr);
+            return h;
+        });
+    }
+
+    // returns the counter with the given name, it is created if needed
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    // registers a value that is read when the metrics are reported
+    public void gauge(String name, DoubleSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Commits a jdk.jfr event for every value recorded into a histogram,
+     * so they show up in a running Flight Recorder recording.
+     * @throws UnsupportedOperationException if the JVM has no Flight Recorder
+     */
+    public synchronized void setJfrEnabled(boolean enabled) {
+        if (enabled && !jfrAvailable())
+            throw new UnsupportedOperationException("Flight Recorder events need the jdk.jfr module");
+        jfr = enabled;
+        for (Histogram h : histograms.values())
+            h.setJfr(enabled);
+    }
+
+    public boolean isJfrEnabled() { return jfr; }
+
+    // histograms, counters and gauges sorted by name
+    public Map<String, Histogram> histograms() { return histograms; }
+
+    public Map<String, LongAdder> counters() { return counters; }
+
+    public Map<String, DoubleSupplier> gauges() { return gauges; }
+
+    private static boolean jfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * class MetricsReporter writes the metrics of a Metrics registry
+ * periodically on a background thread, so the threads recording them
+ * never wait on I/O. Histograms are reported for the values recorded since
+ * the previous report, counters with their total and rate.
+ * <pre>
+ * TEXT: simulation.compute.ns count=120 mean=48211.5 p50=47103 p90=52223 p99=61439 max=98303
+ * CSV:  time,name,count,mean,p50,p90,p99,max,total,rate,value
+ * </pre>
+ */
+public class MetricsReporter implements Closeable {
+    public enum Format { TEXT, CSV }
+
+    static final String CSV_HEADER = "time,name,count,mean,p50,p90,p99,max,total,rate,value";
+
+    private final Metrics metrics;
+    private final Writer out;
+    private final Format format;
+    private final ScheduledExecutorService timer;
+
+    // state of the previous report, only used while holding the lock of this
+    private final Map<String, Histogram.Snapshot> lastSnapshots = new HashMap<>();
+    private final Map<String, Long> lastTotals = new HashMap<>();
+    private long lastReport = System.nanoTime();
+    private final long start = lastReport;
+
+    /**
+     * Starts reporting.
+     * @param metrics metrics to report
+     * @param out writer reports are written to, it is flushed after every report but not closed
+     * @param format format of the reports
+     * @param period time between two reports, not positive to only report on report() and close()
+     * @param unit unit of period
+     */
+    public MetricsReporter(Metrics metrics, Writer out, Format format, long period, TimeUnit unit) {
+        this.metrics = metrics;
+        this.out = out;
+        this.format = format;
+        if (format == Format.CSV) write(CSV_HEADER + '\n');
+        if (period > 0) {
+            timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "metrics-reporter");
+                t.setDaemon(true);
+                return t;
+            });
+            timer.scheduleAtFixedRate(this::report, period, period, unit);
+        } else {
+            timer = null;
+        }
+    }
+
+    // writes a report of the metrics recorded since the previous report
+    public synchronized void report() {
+        long now = System.nanoTime();
+        double seconds = (now - lastReport) / 1e9;
+        long time = TimeUnit.NANOSECONDS.toMillis(now - start);
+        lastReport = now;
+
+        StringBuilder sb = new StringBuilder();
+        if (format == Format.TEXT) sb.append("-- metrics at ").append(time).append(" ms --\n");
+        for (Map.Entry<String, Histogram> e : metrics.histograms().entrySet()) {
+            Histogram.Snapshot current = e.getValue().snapshot();
+            Histogram.Snapshot last = lastSnapshots.put(e.getKey(), current);
+            Histogram.Snapshot h = (last == null) ? current : current.minus(last);
+            if (format == Format.TEXT)
+                sb.append(e.getKey()).append(" count=").append(h.count())
+                        .append(" mean=").append(decimal(h.mean()))
+                        .append(" p50=").append(h.percentile(50))
+                        .append(" p90=").append(h.percentile(90))
+                        .append(" p99=").append(h.percentile(99))
+                        .append(" max=").append(h.max()).append('\n');
+            else
+                sb.append(time).append(',').append(e.getKey()).append(',').append(h.count())
+                        .append(',').append(decimal(h.mean()))
+                        .append(',').append(h.percentile(50))
+                        .append(',').append(h.percentile(90))
+                        .append(',').append(h.percentile(99))
+                        .append(',').append(h.max()).append(",,,\n");
+        }
+        for (Map.Entry<String, LongAdder> e : metrics.counters().entrySet()) {
+            long total = e.getValue().sum();
+            Long last = lastTotals.put(e.getKey(), total);
+            double rate = (seconds > 0) ? (total - (last == null ? 0 : last)) / seconds : 0;
+            if (format == Format.TEXT)
+                sb.append(e.getKey()).append(" total=").append(total)
+                        .append(" rate=").append(decimal(rate)).append("/s\n");
+            else
+                sb.append(time).append(',').append(e.getKey()).append(",,,,,,,")
+                        .append(total).append(',').append(decimal(rate)).append(",\n");
+        }
+        for (Map.Entry<String, DoubleSupplier> e : metrics.gauges().entrySet()) {
+            double value = e.getValue().getAsDouble();
+            if (format == Format.TEXT)
+                sb.append(e.getKey()).append(" value=").append(decimal(value)).append('\n');
+            else
+                sb.append(time).append(',').append(e.getKey()).append(",,,,,,,,,")
+                        .append(decimal(value)).append('\n');
+        }
+        write(sb.toString());
+    }
+
+    // stops reporting and writes a last report
+    @Override
+    public void close() {
+        if (timer != null) timer.shutdownNow();
+        report();
+    }
+
+    private synchronized void write(String s) {
+        try {
+            out.write(s);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String decimal(double v) {
+        return String.format(Locale.ROOT, "%.1f", v);
+    }
+}
@@ -0,0 +1,126 @@
+package util;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * class RandomStream is a seedable, splittable pseudo-random generator
+ * (SplitMix64, the algorithm of java.util.SplittableRandom). Unlike
+ * SplittableRandom its state can be read and restored, and independent
+ * streams can be derived by key, so every robot of a simulation gets the
+ * same stream no matter in which order or on which thread it runs.
+ * A stream must only be used by one thread at a time.
+ */
+public final class RandomStream {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    // mixed into the seed so derived streams don't overlap with the outputs of this stream
+    private static final long DERIVE_SALT = 0x5851f42d4c957f2dL;
+
+    private long seed;
+    private final long gamma;
+
+    public RandomStream(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    /**
+     * Restores a stream from its state, see getSeed() and getGamma().
+     * @param seed current seed of the stream
+     * @param gamma increment of the stream, must be odd
+     */
+    public RandomStream(long seed, long gamma) {
+        if ((gamma & 1) == 0) throw new IllegalArgumentException("gamma must be odd");
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    // a stream with a seed that is different on every call
+    public static RandomStream unseeded() {
+        return new RandomStream(ThreadLocalRandom.current().nextLong());
+    }
+
+    public long getSeed() { return seed; }
+
+    public long getGamma() { return gamma; }
+
+    public long nextLong() {
+        return mix64(seed += gamma);
+    }
+
+    // uniformly random int in [0, bound)
+    public int nextInt(int bound) {
+        if (bound <= 0) throw new IllegalArgumentException("bound must be positive: " + bound);
+        int m = bound - 1;
+        int r = (int) (nextLong() >>> 32);
+        if ((bound & m) == 0) return r & m;
+        // reject the last partial range of 2^31 so every value is equally likely
+        for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = (int) (nextLong() >>> 33)) { }
+        return r;
+    }
+
+    // uniformly random double in [0, 1)
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Returns a uniformly random double in [low, high)
+     * @param low lower bound
+     * @param high upper bound
+     * @return a uniformly random double in [low, high)
+     */
+    public double uniform(double low, double high) {
+        return nextDouble() * (high - low) + low;
+    }
+
+    /**
+     * Returns a uniformly random int in [low, high)
+     * @param low lower bound
+     * @param high upper bound, greater than low
+     * @return a uniformly random int in [low, high)
+     */
+    public int uniform(int low, int high) {
+        if (high <= low) throw new IllegalArgumentException("empty range [" + low + ", " + high + ")");
+        long range = (long) high - low;
+        if (range <= Integer.MAX_VALUE) return low + nextInt((int) range);
+        int r;
+        do {
+            r = (int) nextLong();
+        } while (r < low || r >= high);
+        return r;
+    }
+
+    /**
+     * Returns a new stream and advances this one, the two streams
+     * are statistically independent.
+     */
+    public RandomStream split() {
+        return new RandomStream(nextLong(), mixGamma(seed += gamma));
+    }
+
+    /**
+     * Returns the stream with the given key derived from the current state
+     * of this stream, without advancing it. Different keys give independent
+     * streams, the same key always gives the same stream.
+     * @param key key of the stream, e.g. the index of a robot
+     */
+    public RandomStream derive(long key) {
+        long base = mix64(seed ^ DERIVE_SALT);
+        return new RandomStream(mix64(base + gamma * (2 * key + 1)), mixGamma(base + gamma * (2 * key + 2)));
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    // odd gamma with enough bit transitions, as in SplittableRandom
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
@@ -1,7 +1,14 @@
 package util;
 
 import java.awt.*;
+import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * class RandomUtil has helpers for drawing random values. The static
+ * methods without a RandomStream use a generator local to the calling
+ * thread, they never contend between threads but can't be seeded, use
+ * a RandomStream for reproducible runs.
+ */
 public class RandomUtil {
 
     private RandomUtil() {}
@@ -14,18 +21,18 @@ public class RandomUtil {
      * @return a uniformly random double in [low, high)
      */
     public static double uniform(double low, double high) {
-        return Math.random() * (high - low) + low;
+        return ThreadLocalRandom.current().nextDouble() * (high - low) + low;
     }
 
 
     /**
-     * Returns a uniformly random int in [low, high)
+     * Returns a uniformly random int in [low, high), as RandomStream.uniform
      * @param low lower bound
-     * @param high upper bound
+     * @param high upper bound, greater than low
      * @return a uniformly random int in [low, high)
      */
     public static int uniform(int low, int high) {
-        return (int)uniform(low, (double)high);
+        return ThreadLocalRandom.current().nextInt(low, high);
     }
 
 
@@ -41,4 +48,19 @@ public class RandomUtil {
                 RandomUtil.uniform(low, high)
         );
     }
+
+
+    /**
+     * Returns a Point with uniformly random coordinates in [low, high)
+     * @param random stream to draw the coordinates from
+     * @param low lower bound
+     * @param high upper bound
+     * @return a Point with uniformly random coordinates in [low, high)
+     */
+    public static Point uniformPoint(RandomStream random, int low, int high) {
+        return new Point(
+                random.uniform(low, high),
+                random.uniform(low, high)
+        );
+    }
 }
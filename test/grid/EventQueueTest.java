@@ -0,0 +1,83 @@
+package grid;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventQueueTest {
+    private static final int PRODUCERS = 4;
+    private static final int EVENTS = 50_000;
+
+    // event that remembers who enqueued it
+    private static final class Tagged implements Event {
+        final int producer, sequence;
+
+        Tagged(int producer, int sequence) {
+            this.producer = producer;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void consume() {}
+    }
+
+    @Test
+    void drainKeepsTheOrderOfEveryProducer() throws InterruptedException {
+        EventQueue queue = new EventQueue();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            int producer = p;
+            Thread t = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < EVENTS; i++)
+                    queue.enqueue(new Tagged(producer, i));
+            });
+            t.start();
+            producers.add(t);
+        }
+
+        // drain in small batches while the producers are still running
+        int[] next = new int[PRODUCERS];
+        int received = 0;
+        start.countDown();
+        while (received < PRODUCERS * EVENTS) {
+            received += queue.drainTo(e -> {
+                Tagged t = (Tagged) e;
+                assertEquals(next[t.producer]++, t.sequence, "producer " + t.producer);
+            }, 64);
+            Thread.yield();
+        }
+        for (Thread t : producers)
+            t.join();
+
+        for (int p = 0; p < PRODUCERS; p++)
+            assertEquals(EVENTS, next[p]);
+        assertEquals(0, queue.size());
+        assertNull(queue.dequeue());
+    }
+
+    @Test
+    void drainLeavesEventsEnqueuedWhileDraining() {
+        EventQueue queue = new EventQueue();
+        for (int i = 0; i < 3; i++)
+            queue.enqueue(new Tagged(0, i));
+        List<Integer> drained = new ArrayList<>();
+        int count = queue.drainTo(e -> {
+            drained.add(((Tagged) e).sequence);
+            queue.enqueue(new Tagged(1, drained.size()));
+        });
+        assertEquals(3, count);
+        assertEquals(List.of(0, 1, 2), drained);
+        assertEquals(3, queue.size());
+        assertEquals(1, ((Tagged) queue.dequeue()).producer);
+    }
+}
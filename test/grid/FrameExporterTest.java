@@ -0,0 +1,57 @@
+package grid;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrameExporterTest {
+
+    // exporter whose encoding and finishing fail on request
+    private static final class Failing extends FrameExporter {
+        final boolean failEncode, failFinish;
+        boolean finished = false;
+
+        Failing(boolean failEncode, boolean failFinish) {
+            super(1);
+            this.failEncode = failEncode;
+            this.failFinish = failFinish;
+        }
+
+        @Override
+        protected void encode(int index, BufferedImage frame) throws IOException {
+            if (failEncode) throw new IOException("encode " + index);
+        }
+
+        @Override
+        protected void finish() throws IOException {
+            finished = true;
+            if (failFinish) throw new IOException("finish");
+        }
+    }
+
+    @Test
+    void closeReportsTheFirstFailure() throws IOException {
+        Failing exporter = new Failing(true, true);
+        AtomicInteger released = new AtomicInteger();
+        exporter.submit(0, new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB), released::incrementAndGet);
+        IOException e = assertThrows(IOException.class, exporter::close);
+        assertEquals("encode 0", e.getMessage());
+        assertEquals(1, e.getSuppressed().length);
+        assertEquals("finish", e.getSuppressed()[0].getMessage());
+        assertTrue(exporter.finished);
+        assertEquals(1, released.get());
+    }
+
+    @Test
+    void closeReportsFailuresToFinish() throws IOException {
+        Failing exporter = new Failing(false, true);
+        exporter.submit(0, new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB), () -> {});
+        IOException e = assertThrows(IOException.class, exporter::close);
+        assertEquals("finish", e.getMessage());
+        assertEquals(1, exporter.encoded());
+    }
+}
@@ -0,0 +1,116 @@
+package grid;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// exported frames must decode to the frames the renderer drew
+class OffscreenRendererTest {
+    private static final int FRAMES = 12;
+
+    // tile that walks one point to the right on every update, in colors of the GIF palette
+    private static final class Walker implements Entity {
+        private int x = 0;
+
+        @Override
+        public void update() { x++; }
+
+        @Override
+        public void render(Graphics2D g2D, Camera c) {
+            g2D.setColor((x % 2 == 0) ? Color.RED : Color.WHITE);
+            g2D.fillRect(c.gridToScreenX(x), c.gridToScreenY(x / 2), c.tileSize(), c.tileSize());
+        }
+    }
+
+    @TempDir
+    File dir;
+
+    @Test
+    void pngFramesMatchTheRenderedFrames() throws Exception {
+        List<BufferedImage> expected = expectedFrames();
+        try (OffscreenRenderer renderer = new OffscreenRenderer(camera(), FrameExporter.png(dir, "frame_", 2), 3)) {
+            renderFrames(renderer);
+        }
+        for (int i = 0; i < FRAMES; i++) {
+            File file = new File(dir, String.format("frame_%06d.png", i));
+            assertSamePixels(expected.get(i), ImageIO.read(file), "frame " + i);
+        }
+        assertFalse(new File(dir, String.format("frame_%06d.png", FRAMES)).exists());
+    }
+
+    @Test
+    void gifFramesMatchTheRenderedFrames() throws Exception {
+        List<BufferedImage> expected = expectedFrames();
+        File gif = new File(dir, "run.gif");
+        FrameExporter exporter = FrameExporter.gif(gif, 50);
+        try (OffscreenRenderer renderer = new OffscreenRenderer(camera(), exporter, 2)) {
+            renderFrames(renderer);
+        }
+        assertEquals(FRAMES, exporter.encoded());
+
+        ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+        try (ImageInputStream in = ImageIO.createImageInputStream(gif)) {
+            reader.setInput(in);
+            assertEquals(FRAMES, reader.getNumImages(true));
+            for (int i = 0; i < FRAMES; i++)
+                assertSamePixels(expected.get(i), reader.read(i), "frame " + i);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    @Test
+    void renderFrameNeedsAnExporter() {
+        OffscreenRenderer renderer = new OffscreenRenderer(camera());
+        assertThrows(IllegalStateException.class, renderer::renderFrame);
+    }
+
+    private static Camera camera() {
+        return new Camera(128, 96, 8, -1, 6, 0, 0);
+    }
+
+    private static void renderFrames(OffscreenRenderer renderer) throws IOException, InterruptedException {
+        Walker walker = new Walker();
+        renderer.addEntity(walker);
+        for (int i = 0; i < FRAMES; i++) {
+            renderer.renderFrame();
+            walker.update();
+        }
+        assertEquals(FRAMES, renderer.frames());
+    }
+
+    // frames drawn by render(), copied since render() reuses its image
+    private static List<BufferedImage> expectedFrames() throws InterruptedException {
+        OffscreenRenderer renderer = new OffscreenRenderer(camera());
+        Walker walker = new Walker();
+        renderer.addEntity(walker);
+        List<BufferedImage> frames = new ArrayList<>();
+        for (int i = 0; i < FRAMES; i++) {
+            BufferedImage image = renderer.render();
+            BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+            copy.setData(image.getData());
+            frames.add(copy);
+            walker.update();
+        }
+        return frames;
+    }
+
+    private static void assertSamePixels(BufferedImage expected, BufferedImage actual, String frame) {
+        assertEquals(expected.getWidth(), actual.getWidth(), frame);
+        assertEquals(expected.getHeight(), actual.getHeight(), frame);
+        for (int y = 0; y < expected.getHeight(); y++)
+            for (int x = 0; x < expected.getWidth(); x++)
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), frame + " at " + x + "," + y);
+    }
+}
@@ -0,0 +1,107 @@
+package kcf;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckpointTest {
+
+    @Test
+    void restoredRunContinuesLikeTheOriginal() throws IOException {
+        for (String scheduler : new String[]{"fsync", "ssync:0.5", "async:4"}) {
+            Simulation original = walkers(scheduler);
+            HeadlessRunner.run(original, 10, false);
+            byte[] checkpoint = checkpoint(original);
+
+            Simulation restored = walkers(scheduler);
+            restored.restore(new ByteArrayInputStream(checkpoint));
+            assertArrayEquals(checkpoint, checkpoint(restored), scheduler);
+
+            RunResult expected = HeadlessRunner.run(original, 30, false);
+            RunResult actual = HeadlessRunner.run(restored, 30, false);
+            assertEquals(expected.rounds, actual.rounds, scheduler);
+            assertEquals(expected.state, actual.state, scheduler);
+            assertEquals(expected.collisions, actual.collisions, scheduler);
+            assertArrayEquals(expected.positions, actual.positions, scheduler);
+        }
+    }
+
+    @Test
+    void restoreReplacesTheFixedPointsShown() throws IOException {
+        Simulation original = walkers("fsync");
+        HeadlessRunner.run(original, 2);
+        byte[] checkpoint = checkpoint(original);
+
+        // same number of robots and fixed points, but the fixed points are elsewhere
+        Simulation other = TestRobots.walkers(20, 50, false, Scheduler.fsync(), 7);
+        assertEquals(50, other.getSnapshot().fixedX(1));
+        other.restore(new ByteArrayInputStream(checkpoint));
+        SimulationSnapshot snapshot = other.getSnapshot();
+        assertEquals(16, snapshot.fixedX(1));
+        assertEquals(16, snapshot.fixedY(1));
+        assertEquals(original.getPositions()[0].x, snapshot.robotX(0));
+    }
+
+    @Test
+    void rejectsCheckpointsOfOtherSimulations() throws IOException {
+        byte[] checkpoint = checkpoint(walkers("fsync"));
+        Simulation other = TestRobots.walkers(21, 16, false, Scheduler.fsync(), 42);
+        assertThrows(IOException.class, () -> other.restore(new ByteArrayInputStream(checkpoint)));
+        Simulation async = walkers("async:4");
+        assertThrows(IOException.class, () -> async.restore(new ByteArrayInputStream(checkpoint)));
+        assertThrows(IOException.class, () -> async.restore(new ByteArrayInputStream(new byte[]{1, 2, 3, 4})));
+    }
+
+    @Test
+    void restoreLeavesTheCallersFixedPointsAlone() throws IOException {
+        byte[] checkpoint = checkpoint(walkers("fsync"));
+        Point[] fixed = {new Point(3, 4), new Point(5, 6)};
+        RobotInterface[] robots = new RobotInterface[20];
+        for (int i = 0; i < robots.length; i++)
+            robots[i] = new RobotInterface(new TestRobots.Walker(new Point(i, 0)), true);
+        Simulation other = new Simulation(robots, fixed, 0, false);
+        other.restore(new ByteArrayInputStream(checkpoint));
+        assertEquals(16, other.getSnapshot().fixedX(1));
+        assertEquals(new Point(3, 4), fixed[0]);
+        assertEquals(new Point(5, 6), fixed[1]);
+    }
+
+    @Test
+    void rejectsActivationHeapsWithARobotTwice() throws IOException {
+        Scheduler scheduler = SweepSpec.scheduler("async:4");
+        TestRobots.walkers(2, 8, false, scheduler, 1);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(0);
+        out.writeInt(0);
+        for (int i = 0; i < 2; i++) {
+            out.writeByte(0);
+            out.writeInt(0);
+        }
+        out.writeInt(2);
+        for (int k = 0; k < 2; k++) {
+            out.writeInt(1);
+            out.writeLong(3);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertThrows(IOException.class, () -> scheduler.restore(in));
+    }
+
+    private static Simulation walkers(String scheduler) {
+        return TestRobots.walkers(20, 16, false, SweepSpec.scheduler(scheduler), 42);
+    }
+
+    private static byte[] checkpoint(Simulation s) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        s.checkpoint(out);
+        return out.toByteArray();
+    }
+}
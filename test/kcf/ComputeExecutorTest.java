@@ -0,0 +1,77 @@
+package kcf;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// a parallel compute phase must give the same runs as the sequential one
+class ComputeExecutorTest {
+    private static final int ROUNDS = 30;
+
+    @Test
+    void forEachRunsEveryIndexOnce() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (ComputeExecutor executor : new ComputeExecutor[]{ComputeExecutor.SEQUENTIAL, ComputeExecutor.forkJoin(pool, 3)})
+                for (int n : new int[]{0, 1, 7, 1000})
+                    assertEachIndexOnce(executor, n);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void forkJoinComputeMatchesSequential() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertSameAsSequential(ComputeExecutor.forkJoin(pool, 4));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // walkers draw from per-robot streams, so the threads robots are computed on don't change a seeded run
+    @Test
+    void executorServiceComputeMatchesSequential() {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (int n : new int[]{0, 1, 7, 1000})
+                assertEachIndexOnce(ComputeExecutor.of(executor, 16), n);
+            assertSameAsSequential(ComputeExecutor.of(executor, 16));
+            assertThrows(IllegalStateException.class, () -> ComputeExecutor.of(executor, 4).forEach(10, i -> {
+                if (i == 5) throw new ArithmeticException();
+            }));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void assertEachIndexOnce(ComputeExecutor executor, int n) {
+        AtomicIntegerArray runs = new AtomicIntegerArray(n);
+        executor.forEach(n, runs::incrementAndGet);
+        for (int i = 0; i < n; i++)
+            assertEquals(1, runs.get(i), "index " + i + " of " + n);
+    }
+
+    // steps through the move phases, so only the compute phase runs on the executor
+    private static void assertSameAsSequential(ComputeExecutor executor) {
+        for (String scheduler : new String[]{"fsync", "ssync:0.5"}) {
+            RunResult expected = HeadlessRunner.run(walkers(scheduler), ROUNDS, false);
+            Simulation parallel = walkers(scheduler);
+            parallel.setComputeExecutor(executor);
+            RunResult actual = HeadlessRunner.run(parallel, ROUNDS, false);
+            assertEquals(expected.rounds, actual.rounds, scheduler);
+            assertEquals(expected.collisions, actual.collisions, scheduler);
+            assertArrayEquals(expected.positions, actual.positions, scheduler);
+        }
+    }
+
+    private static Simulation walkers(String scheduler) {
+        return TestRobots.walkers(500, 40, false, SweepSpec.scheduler(scheduler), 11);
+    }
+}
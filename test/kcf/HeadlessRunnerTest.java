@@ -0,0 +1,56 @@
+package kcf;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.io.StringReader;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeadlessRunnerTest {
+
+    @Test
+    void runsWithoutRobotsFinish() {
+        for (String scheduler : new String[]{"fsync", "ssync:0.5", "async:3"}) {
+            Simulation s = new Simulation(new RobotInterface[0], new Point[]{new Point(1, 1)}, 0, false);
+            s.setScheduler(SweepSpec.scheduler(scheduler));
+            RunResult result = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> HeadlessRunner.run(s, 50));
+            assertEquals(50, result.rounds, scheduler);
+        }
+    }
+
+    @Test
+    void seededRunsRepeat() {
+        for (String scheduler : new String[]{"ssync:0.5", "async:3"}) {
+            RunResult a = HeadlessRunner.run(TestRobots.walkers(50, 20, false, SweepSpec.scheduler(scheduler), 9), 30);
+            RunResult b = HeadlessRunner.run(TestRobots.walkers(50, 20, false, SweepSpec.scheduler(scheduler), 9), 30);
+            assertEquals(a.collisions, b.collisions, scheduler);
+            assertArrayEquals(a.positions, b.positions, scheduler);
+        }
+    }
+
+    @Test
+    void runsStopAtMaxRounds() {
+        for (String scheduler : new String[]{"fsync", "ssync:0.5", "async:3"}) {
+            Simulation s = TestRobots.walkers(20, 16, false, SweepSpec.scheduler(scheduler), 5);
+            RunResult result = HeadlessRunner.run(s, 25);
+            assertEquals(25, result.rounds, scheduler);
+            assertEquals(20, result.positions.length, scheduler);
+        }
+    }
+
+    @Test
+    void collisionsEndRunsInErrorState() {
+        Simulation s = TestRobots.walkers(200, 10, true, SweepSpec.scheduler("fsync"), 5);
+        RunResult result = HeadlessRunner.run(s, 25);
+        assertEquals(SimulationStates.ERROR, result.state);
+        assertTrue(result.rounds < 25);
+        assertTrue(result.collisions > 0);
+    }
+
+    @Test
+    void sweepsRejectRunsWithoutRobots() {
+        assertThrows(IllegalArgumentException.class, () -> SweepSpec.load(new StringReader("robots = 0, 10")));
+    }
+}
@@ -0,0 +1,95 @@
+package kcf;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// jumping over move phases must give the same runs as stepping through them
+class JumpMoveTest {
+    private static final int ROUNDS = 40;
+
+    @Test
+    void jumpMatchesSteppedRuns() {
+        for (int robots : new int[]{2, 30, 300})
+            for (int side : new int[]{3, 10, 60})
+                for (boolean error : new boolean[]{false, true})
+                    for (String scheduler : new String[]{"fsync", "ssync:0.5"}) {
+                        String config = robots + " robots, side " + side + ", error " + error + ", " + scheduler;
+                        RunResult stepped = HeadlessRunner.run(walkers(robots, side, error, scheduler), ROUNDS, false);
+                        RunResult jumped = HeadlessRunner.run(walkers(robots, side, error, scheduler), ROUNDS, true);
+                        assertSameRun(stepped, jumped, config);
+                    }
+    }
+
+    @Test
+    void parallelDetectionReportsTheSameCollisions() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Simulation sequential = walkers(3000, 60, false, "fsync");
+            List<Collision> expected = new ArrayList<>();
+            sequential.setCollisionListener(expected::add);
+            RunResult a = HeadlessRunner.run(sequential, ROUNDS);
+
+            Simulation parallel = walkers(3000, 60, false, "fsync");
+            parallel.setComputeExecutor(ComputeExecutor.forkJoin(pool, 4));
+            List<Collision> actual = new ArrayList<>();
+            parallel.setCollisionListener(actual::add);
+            RunResult b = HeadlessRunner.run(parallel, ROUNDS);
+
+            assertSameRun(a, b, "parallel");
+            assertFalse(expected.isEmpty());
+            assertEquals(expected.toString(), actual.toString());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void robotsPassingEachOtherSwap() {
+        // one apart the robots exchange their points in the first step
+        assertEquals(Collision.Type.SWAP, headOn(1).type);
+        assertEquals(1, headOn(1).step);
+        // two apart they meet on the point between them
+        assertEquals(Collision.Type.VERTEX, headOn(2).type);
+        assertEquals(1, headOn(2).step);
+        assertEquals(Collision.Type.SWAP, headOn(3).type);
+        assertEquals(2, headOn(3).step);
+    }
+
+    // first collision of two robots walking towards each other
+    private static Collision headOn(int gap) {
+        RobotInterface[] robots = {
+                new RobotInterface(new TestRobots.Line(new Point(0, 0), Direction.RIGHT, 4), true),
+                new RobotInterface(new TestRobots.Line(new Point(gap, 0), Direction.LEFT, 4), true)
+        };
+        Simulation s = new Simulation(robots, new Point[0], 0, true);
+        List<Collision> collisions = new ArrayList<>();
+        s.setCollisionListener(collisions::add);
+        RunResult result = HeadlessRunner.run(s, 3);
+
+        RobotInterface[] stepped = {
+                new RobotInterface(new TestRobots.Line(new Point(0, 0), Direction.RIGHT, 4), true),
+                new RobotInterface(new TestRobots.Line(new Point(gap, 0), Direction.LEFT, 4), true)
+        };
+        assertSameRun(HeadlessRunner.run(new Simulation(stepped, new Point[0], 0, true), 3, false), result, "gap " + gap);
+        assertEquals(SimulationStates.ERROR, result.state);
+        assertFalse(collisions.isEmpty());
+        return collisions.get(0);
+    }
+
+    private static Simulation walkers(int robots, int side, boolean error, String scheduler) {
+        return TestRobots.walkers(robots, side, error, SweepSpec.scheduler(scheduler), 42);
+    }
+
+    private static void assertSameRun(RunResult expected, RunResult actual, String config) {
+        assertEquals(expected.rounds, actual.rounds, config);
+        assertEquals(expected.state, actual.state, config);
+        assertEquals(expected.collisions, actual.collisions, config);
+        assertArrayEquals(expected.positions, actual.positions, config);
+    }
+}
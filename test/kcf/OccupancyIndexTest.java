@@ -0,0 +1,68 @@
+package kcf;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OccupancyIndexTest {
+
+    @Test
+    void countsRobotsPerPoint() {
+        OccupancyIndex index = new OccupancyIndex(4);
+        assertEquals(1, index.add(1, 2));
+        assertEquals(2, index.add(1, 2));
+        assertEquals(1, index.add(-1, 2));
+        assertEquals(2, index.size());
+        assertEquals(1, index.remove(1, 2));
+        assertEquals(2, index.move(1, 2, -1, 2));
+        assertEquals(0, index.count(1, 2));
+        assertEquals(2, index.count(-1, 2));
+        assertEquals(1, index.size());
+        index.clear();
+        assertEquals(0, index.size());
+        assertEquals(0, index.count(-1, 2));
+    }
+
+    @Test
+    void extremeCoordinatesDoNotCollide() {
+        OccupancyIndex index = new OccupancyIndex(4);
+        index.add(Integer.MAX_VALUE, Integer.MIN_VALUE);
+        index.add(Integer.MIN_VALUE, Integer.MAX_VALUE);
+        index.add(-1, 0);
+        index.add(0, -1);
+        assertEquals(1, index.count(Integer.MAX_VALUE, Integer.MIN_VALUE));
+        assertEquals(1, index.count(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(1, index.count(-1, 0));
+        assertEquals(1, index.count(0, -1));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void matchesAMapUnderRandomOperations() {
+        // a small grid so removals often hit probe chains that must be shifted back
+        Random random = new Random(7);
+        OccupancyIndex index = new OccupancyIndex(2);
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int op = 0; op < 100_000; op++) {
+            int x = random.nextInt(40) - 20, y = random.nextInt(40) - 20;
+            long key = OccupancyIndex.pack(x, y);
+            if (random.nextInt(3) == 0) {
+                int count = expected.getOrDefault(key, 0);
+                if (count > 1) expected.put(key, count - 1);
+                else expected.remove(key);
+                assertEquals(Math.max(0, count - 1), index.remove(x, y));
+            } else {
+                int count = expected.merge(key, 1, Integer::sum);
+                assertEquals(count, index.add(x, y));
+            }
+        }
+        assertEquals(expected.size(), index.size());
+        for (int x = -20; x < 20; x++)
+            for (int y = -20; y < 20; y++)
+                assertEquals((int) expected.getOrDefault(OccupancyIndex.pack(x, y), 0), index.count(x, y));
+    }
+}
@@ -0,0 +1,65 @@
+package kcf;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathTest {
+
+    @Test
+    void appendMergesRunsOfTheSameDirection() {
+        Path path = new Path().append(Direction.UP, 2).append(Direction.UP, 3).append(Direction.LEFT, 1);
+        assertEquals(6, path.size());
+        assertEquals(2, path.runCount());
+        assertEquals(Direction.UP, path.runDirection(0));
+        assertEquals(5, path.runLength(0));
+        assertEquals(1, path.runLength(1));
+    }
+
+    @Test
+    void pollReturnsStepsInOrder() {
+        Path path = new Path().append(Direction.RIGHT, 2).append(Direction.DOWN, 1);
+        assertEquals(Arrays.asList(Direction.RIGHT, Direction.RIGHT, Direction.DOWN), drain(path));
+        assertTrue(path.isEmpty());
+        assertNull(path.poll());
+    }
+
+    @Test
+    void skipMovesTheCursorAcrossRuns() {
+        Path path = new Path().append(Direction.RIGHT, 2).append(Direction.UP, 3).append(Direction.LEFT, 4);
+        assertEquals(3, path.skip(3));
+        assertEquals(6, path.size());
+        assertEquals(Direction.UP, path.peek());
+        assertEquals(2, path.runLength(0));
+        assertEquals(6, path.skip(100));
+        assertTrue(path.isEmpty());
+    }
+
+    @Test
+    void setCopiesTheRemainingSteps() {
+        Path source = new Path().append(Direction.DOWN, 3).append(Direction.LEFT, 1);
+        source.poll();
+        Path copy = new Path().append(Direction.UP, 7);
+        copy.set(source);
+        assertEquals(Arrays.asList(Direction.DOWN, Direction.DOWN, Direction.LEFT), drain(copy));
+        assertEquals(3, source.size());
+    }
+
+    @Test
+    void mirrorXFlipsHorizontalSteps() {
+        Path path = new Path().append(Direction.RIGHT, 1).append(Direction.UP, 1).append(Direction.LEFT, 1);
+        path.mirrorX();
+        assertEquals(Arrays.asList(Direction.LEFT, Direction.UP, Direction.RIGHT), drain(path));
+    }
+
+    private static List<Direction> drain(Path path) {
+        List<Direction> steps = new ArrayList<>();
+        for (Direction d = path.poll(); d != null; d = path.poll())
+            steps.add(d);
+        return steps;
+    }
+}
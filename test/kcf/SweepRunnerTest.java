@@ -0,0 +1,44 @@
+package kcf;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SweepRunnerTest {
+    private static final String SPEC = String.join("\n",
+            "robots = 5, 40",
+            "fixed = 3",
+            "seeds = 1..3",
+            "errorOnCollision = false, true",
+            "scheduler = fsync, ssync:0.5, async:2",
+            "rounds = 20");
+
+    @Test
+    void parallelSweepsGiveTheRowsOfSequentialOnes() throws Exception {
+        List<String> sequential = rows(1);
+        List<String> parallel = rows(4);
+        // header and one row per configuration
+        assertEquals(1 + 2 * 3 * 2 * 3, sequential.size());
+        assertEquals(sequential, parallel);
+    }
+
+    // CSV rows sorted, without the run time, which differs between runs
+    private static List<String> rows(int parallelism) throws Exception {
+        StringWriter csv = new StringWriter();
+        assertEquals(0, SweepRunner.run(SweepSpec.load(new StringReader(SPEC)), csv, parallelism));
+        return Arrays.stream(csv.toString().split("\n"))
+                .map(row -> {
+                    String[] columns = row.split(",", -1);
+                    columns[8] = "";
+                    return String.join(",", columns);
+                })
+                .sorted()
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,83 @@
+package kcf;
+
+import java.awt.*;
+import java.util.Queue;
+import java.util.Random;
+
+// deterministic robots and simulations shared by the tests
+final class TestRobots {
+    private TestRobots() {}
+
+    // robot that walks up to three random runs per round, drawn from its seeded stream
+    static class Walker extends Robot {
+        Walker(Point position) {
+            super(position);
+        }
+
+        @Override
+        public Queue<Direction> LCM(Point[] R, Point[] F) {
+            return walk();
+        }
+
+        @Override
+        public Path LCM(PointView R, PointView F) {
+            return walk();
+        }
+
+        private Path walk() {
+            Path path = new Path();
+            for (int runs = random().nextInt(4); runs > 0; runs--)
+                path.append(Direction.values()[random().nextInt(4)], random().nextInt(6));
+            return path;
+        }
+    }
+
+    // robot that walks a single straight run in its first round
+    static class Line extends Robot {
+        private final Direction direction;
+        private final int length;
+        private boolean done = false;
+
+        Line(Point position, Direction direction, int length) {
+            super(position);
+            this.direction = direction;
+            this.length = length;
+        }
+
+        @Override
+        public Queue<Direction> LCM(Point[] R, Point[] F) {
+            return run();
+        }
+
+        @Override
+        public Path LCM(PointView R, PointView F) {
+            return run();
+        }
+
+        private Path run() {
+            Path path = new Path();
+            if (!done) path.append(direction, length);
+            done = true;
+            return path;
+        }
+    }
+
+    /**
+     * Returns a seeded simulation of walkers placed at random on a square.
+     * @param side side of the square, small squares make robots collide
+     */
+    static Simulation walkers(int robots, int side, boolean errorOnCollision, Scheduler scheduler, long seed) {
+        Random placement = new Random(seed);
+        RobotInterface[] interfaces = new RobotInterface[robots];
+        for (int i = 0; i < robots; i++) {
+            Point p = new Point(placement.nextInt(side), placement.nextInt(side));
+            interfaces[i] = new RobotInterface(new Walker(p), placement.nextBoolean());
+        }
+        Point[] fixed = {new Point(-1, -1), new Point(side, side)};
+        Simulation s = new Simulation(interfaces, fixed, 0, errorOnCollision);
+        s.setVerbose(false);
+        s.setScheduler(scheduler);
+        s.setSeed(seed);
+        return s;
+    }
+}
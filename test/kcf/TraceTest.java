@@ -0,0 +1,124 @@
+package kcf;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TraceTest {
+    private static final int ROBOTS = 50, ROUNDS = 30;
+
+    private File file;
+
+    // look positions and round number of every recorded round
+    private final List<Point[]> positions = new ArrayList<>();
+    private final List<Integer> rounds = new ArrayList<>();
+
+    @BeforeEach
+    void record() throws IOException {
+        file = File.createTempFile("trace", ".kcft");
+        Simulation s = TestRobots.walkers(ROBOTS, 30, false, Scheduler.fsync(), 3);
+        try (TraceRecorder recorder = new TraceRecorder(file)) {
+            s.setRecorder(recorder);
+            s.start();
+            while (s.getRound() < ROUNDS) {
+                int recorded = recorder.rounds();
+                s.advance();
+                // synchronous rounds are recorded after compute, before anything moved
+                if (recorder.rounds() > recorded) {
+                    positions.add(s.getPositions());
+                    rounds.add(s.getRound());
+                }
+            }
+        }
+    }
+
+    @AfterEach
+    void delete() {
+        assertTrue(file.delete());
+    }
+
+    @Test
+    void replayShowsTheRecordedRounds() throws IOException {
+        try (TraceReplay replay = new TraceReplay(file, 1)) {
+            assertEquals(positions.size(), replay.rounds());
+            assertEquals(ROBOTS, replay.robotCount());
+            // seek backwards and out of order, every round is decoded on its own
+            for (int k = replay.rounds() - 1; k >= 0; k -= 1 + k / 3)
+                assertRound(replay, k);
+            assertRound(replay, replay.rounds() / 2);
+        }
+    }
+
+    @Test
+    void pathsLeadToTheNextRound() throws IOException {
+        try (TraceReplay replay = new TraceReplay(file, 1)) {
+            Path[] paths = new Path[ROBOTS];
+            for (int k = 0; k + 1 < replay.rounds(); k++) {
+                replay.readPaths(k, paths);
+                for (int i = 0; i < ROBOTS; i++) {
+                    PositionStore p = new PositionStore(1);
+                    p.add(positions.get(k)[i].x, positions.get(k)[i].y);
+                    for (Direction d = paths[i].poll(); d != null; d = paths[i].poll())
+                        p.move(0, d);
+                    assertEquals(positions.get(k + 1)[i], new Point(p.x(0), p.y(0)), "round " + k + " robot " + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    void truncatedTraceEndsAtTheLastCompleteRound() throws IOException {
+        int complete = positions.size();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // cuts the index and footer and the end of the last block
+            raf.setLength(raf.length() - 8L * complete - 16 - 3);
+        }
+        try (TraceReplay replay = new TraceReplay(file, 1)) {
+            assertEquals(complete - 1, replay.rounds());
+            assertRound(replay, complete - 2);
+        }
+    }
+
+    @Test
+    void corruptBlockEndsTheTrace() throws IOException {
+        long offset = blockOffset(10);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // without the index the blocks are found by following their lengths
+            raf.setLength(raf.length() - 8L * positions.size() - 16);
+            raf.seek(offset);
+            raf.writeInt(-100);
+        }
+        try (TraceReplay replay = new TraceReplay(file, 1)) {
+            assertEquals(10, replay.rounds());
+            assertRound(replay, 9);
+        }
+    }
+
+    // offset of the k-th block, read from the index at the end of the trace
+    private long blockOffset(int k) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(raf.length() - 16 - 8L * positions.size() + 8L * k);
+            return raf.readLong();
+        }
+    }
+
+    private void assertRound(TraceReplay replay, int k) {
+        replay.seek(k);
+        replay.update();
+        SimulationSnapshot s = replay.getSnapshot();
+        assertEquals((int) rounds.get(k), s.round(), "round " + k);
+        for (int i = 0; i < ROBOTS; i++)
+            assertEquals(positions.get(k)[i], new Point(s.robotX(i), s.robotY(i)), "round " + k + " robot " + i);
+        assertEquals(-1, s.fixedX(0));
+        assertEquals(30, s.fixedY(1));
+    }
+}
@@ -0,0 +1,127 @@
+package kcf;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// a visibility radius must hide exactly the points farther away than the radius
+class VisibilityTest {
+    private static final int ROBOTS = 200, FIXED = 20, SIDE = 30;
+
+    // robot that stays put and remembers what it saw in its first look
+    private static class Watcher extends Robot {
+        List<String> seenR, seenF;
+
+        Watcher(Point position) {
+            super(position);
+        }
+
+        @Override
+        public Queue<Direction> LCM(Point[] R, Point[] F) {
+            return LCM(view(R), view(F));
+        }
+
+        @Override
+        public Path LCM(PointView R, PointView F) {
+            if (seenR == null) {
+                seenR = sorted(R);
+                seenF = sorted(F);
+            }
+            return new Path();
+        }
+    }
+
+    @Test
+    void radiusLimitsWhatRobotsSee() {
+        for (String scheduler : new String[]{"fsync", "ssync:0.5", "async:3"})
+            for (int radius : new int[]{0, 1, 5, 50}) {
+                Random random = new Random(radius);
+                Point[] robots = points(random, ROBOTS), fixed = points(random, FIXED);
+                boolean[] aligned = new boolean[ROBOTS];
+                Watcher[] watchers = run(robots, fixed, aligned, random, scheduler, radius);
+                for (int i = 0; i < ROBOTS; i++) {
+                    int sign = aligned[i] ? 1 : -1;
+                    String config = scheduler + ", radius " + radius + ", robot " + i;
+                    assertEquals(visible(robots, robots[i], radius, sign), watchers[i].seenR, config);
+                    assertEquals(visible(fixed, robots[i], radius, sign), watchers[i].seenF, config);
+                }
+            }
+    }
+
+    @Test
+    void negativeRadiusShowsEverything() {
+        Random random = new Random(3);
+        Point[] robots = points(random, ROBOTS), fixed = points(random, FIXED);
+        boolean[] aligned = new boolean[ROBOTS];
+        Watcher[] watchers = run(robots, fixed, aligned, random, "fsync", -1);
+        for (int i = 0; i < ROBOTS; i++) {
+            assertEquals(ROBOTS, watchers[i].seenR.size());
+            assertEquals(FIXED, watchers[i].seenF.size());
+        }
+    }
+
+    // runs rounds until every robot has looked, robots never move so the snapshots don't change
+    private static Watcher[] run(
+            Point[] robots, Point[] fixed, boolean[] aligned, Random random, String scheduler, int radius
+    ) {
+        Watcher[] watchers = new Watcher[robots.length];
+        RobotInterface[] interfaces = new RobotInterface[robots.length];
+        for (int i = 0; i < robots.length; i++) {
+            aligned[i] = random.nextBoolean();
+            watchers[i] = new Watcher(new Point(robots[i]));
+            interfaces[i] = new RobotInterface(watchers[i], aligned[i]);
+            // robots are placed in their local coordinate system
+            robots[i] = interfaces[i].getPosition();
+        }
+        Simulation s = new Simulation(interfaces, fixed, 0, false);
+        s.setScheduler(SweepSpec.scheduler(scheduler));
+        s.setSeed(radius);
+        s.setVisibilityRadius(radius);
+        HeadlessRunner.run(s, 20);
+        for (Watcher w : watchers)
+            assertNotNull(w.seenR, "robot never looked");
+        return watchers;
+    }
+
+    // points within radius of p, as seen along an x-axis multiplied by sign
+    private static List<String> visible(Point[] points, Point p, int radius, int sign) {
+        List<String> visible = new ArrayList<>();
+        for (Point q : points) {
+            if (q.distanceSq(p) <= (double) radius * radius)
+                visible.add(sign * q.x + "," + q.y);
+        }
+        Collections.sort(visible);
+        return visible;
+    }
+
+    private static List<String> sorted(PointView view) {
+        List<String> points = new ArrayList<>();
+        for (int i = 0; i < view.size(); i++)
+            points.add(view.x(i) + "," + view.y(i));
+        Collections.sort(points);
+        return points;
+    }
+
+    private static Point[] points(Random random, int n) {
+        Point[] points = new Point[n];
+        for (int i = 0; i < n; i++)
+            points[i] = new Point(random.nextInt(SIDE), random.nextInt(SIDE));
+        return points;
+    }
+
+    private static PointView view(Point[] points) {
+        int[] xs = new int[points.length], ys = new int[points.length];
+        for (int i = 0; i < points.length; i++) {
+            xs[i] = points[i].x;
+            ys[i] = points[i].y;
+        }
+        return PointView.of(xs, ys, points.length);
+    }
+}
@@ -0,0 +1,66 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RandomStreamTest {
+    private static final int DRAWS = 200_000;
+
+    @Test
+    void uniformIntsCoverTheHalfOpenRangeEvenly() {
+        RandomStream random = new RandomStream(1);
+        int[] counts = new int[20];
+        for (int i = 0; i < DRAWS; i++) {
+            int v = random.uniform(-10, 10);
+            assertTrue(v >= -10 && v < 10, "value " + v);
+            counts[v + 10]++;
+        }
+        assertEven(counts);
+    }
+
+    @Test
+    void threadLocalUniformIntsHaveTheSameRange() {
+        int[] counts = new int[20];
+        for (int i = 0; i < DRAWS; i++) {
+            int v = RandomUtil.uniform(-10, 10);
+            assertTrue(v >= -10 && v < 10, "value " + v);
+            counts[v + 10]++;
+        }
+        assertEven(counts);
+    }
+
+    @Test
+    void symmetricRangesHaveMeanZero() {
+        RandomStream random = new RandomStream(2);
+        long sum = 0;
+        for (int i = 0; i < DRAWS; i++)
+            sum += random.uniform(-9, 10);
+        // the standard deviation of a step is about 5.5, of the mean about 0.012
+        assertEquals(0.0, (double) sum / DRAWS, 0.06);
+    }
+
+    @Test
+    void restoredAndDerivedStreamsRepeat() {
+        RandomStream random = new RandomStream(3);
+        random.nextLong();
+        RandomStream restored = new RandomStream(random.getSeed(), random.getGamma());
+        assertEquals(random.derive(7).nextLong(), restored.derive(7).nextLong());
+        assertNotEquals(random.derive(7).nextLong(), random.derive(8).nextLong());
+        for (int i = 0; i < 100; i++)
+            assertEquals(random.nextLong(), restored.nextLong());
+    }
+
+    @Test
+    void emptyRangesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new RandomStream(4).uniform(3, 3));
+        assertThrows(IllegalArgumentException.class, () -> RandomUtil.uniform(3, 3));
+    }
+
+    // every value within 5% of the expected count
+    private static void assertEven(int[] counts) {
+        double expected = (double) DRAWS / counts.length;
+        for (int i = 0; i < counts.length; i++)
+            assertEquals(expected, counts[i], expected * 0.05, "count of value " + (i - 10));
+    }
+}